@@ -0,0 +1,250 @@
+package com.demo.readwrite.benchmark;
+
+import com.baomidou.dynamic.datasource.DynamicRoutingDataSource;
+import com.baomidou.dynamic.datasource.annotation.DS;
+import com.baomidou.dynamic.datasource.aop.DynamicDataSourceAnnotationAdvisor;
+import com.baomidou.dynamic.datasource.aop.DynamicDataSourceAnnotationInterceptor;
+import com.baomidou.dynamic.datasource.provider.DynamicDataSourceProvider;
+import com.demo.readwrite.metrics.QueryMetricsInterceptor;
+import com.demo.readwrite.routing.ReplicaLatencyInterceptor;
+import com.demo.readwrite.service.*;
+import com.demo.readwrite.trace.RoutingTracer;
+import com.demo.readwrite.trace.SlowQueryLog;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.shardingsphere.driver.api.yaml.YamlShardingSphereDataSourceFactory;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.annotation.MapperScan;
+import org.mybatis.spring.boot.autoconfigure.MybatisProperties;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.*;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试的Spring上下文 - 用真实的UserService/ConfigService和Mapper，只替换数据源
+ *
+ * 三种接线方式：
+ * - PLAIN: 单个Hikari连接池，没有任何路由，作为基线
+ * - READWRITE_SPLITTING: ShardingSphere读写分离，master/slave/slave2 + LATENCY_AWARE负载均衡
+ * - DYNAMIC_DATASOURCE: Baomidou DynamicRoutingDataSource + @DS切面，master/config两个数据源
+ * - DIRECT_BINDING: 同DYNAMIC_DATASOURCE，但配置Mapper直接绑定到config连接池(demo.config-binding.mode=direct)，
+ *   与DYNAMIC_DATASOURCE对比配置读写即可看出@DS切面的每次调用开销
+ *
+ * 所有数据源都指向H2内存库(MySQL模式)，测到的是路由层和应用层自身的开销，而不是网络和MySQL。
+ * 进程内缓存、合并查询、聚合、用户名索引、配置快照和路由追踪都关闭，每次调用都真正走到数据库。
+ */
+public final class BenchmarkContexts {
+
+    /** 不加DATABASE_TO_LOWER：ShardingSphere按大写的PUBLIC模式加载H2表元数据，小写时找不到users表 */
+    private static final String USERS_URL = "jdbc:h2:mem:bench_users;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private static final String CONFIG_URL = "jdbc:h2:mem:bench_config;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final String READWRITE_SPLITTING_YAML = """
+            databaseName: bench
+            rules:
+            - !READWRITE_SPLITTING
+              dataSources:
+                readwrite_ds:
+                  writeDataSourceName: master
+                  readDataSourceNames:
+                    - slave
+                    - slave2
+                  loadBalancerName: latency_aware
+              loadBalancers:
+                latency_aware:
+                  type: LATENCY_AWARE
+                  props:
+                    decay-ms: 10000
+                    slave: 2
+                    slave2: 1
+            # 5.4起单表需要显式加载，否则绑定阶段报 Table or view `users` does not exist
+            - !SINGLE
+              tables:
+                - "*.*"
+            props:
+              sql-show: false
+            """;
+
+    public enum Wiring {
+        PLAIN, READWRITE_SPLITTING, DYNAMIC_DATASOURCE, DIRECT_BINDING
+    }
+
+    private BenchmarkContexts() {
+    }
+
+    /**
+     * 按接线方式创建并启动上下文，每次都会重建表和测试数据
+     *
+     * @param metrics 是否注册QueryMetricsInterceptor，用于衡量语句指标本身的开销
+     */
+    public static AnnotationConfigApplicationContext start(Wiring wiring, boolean metrics) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources()
+                .addFirst(new MapPropertySource("benchmark", properties(wiring, metrics)));
+        context.register(ServiceConfig.class);
+        context.register(switch (wiring) {
+            case PLAIN -> PlainConfig.class;
+            case READWRITE_SPLITTING -> ReadwriteSplittingConfig.class;
+            case DYNAMIC_DATASOURCE, DIRECT_BINDING -> DynamicDataSourceConfig.class;
+        });
+        if (metrics) {
+            context.register(MetricsConfig.class);
+        }
+        context.refresh();
+        return context;
+    }
+
+    private static Map<String, Object> properties(Wiring wiring, boolean metrics) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("demo.config-binding.mode", wiring == Wiring.DIRECT_BINDING ? "direct" : "dynamic");
+        properties.put("demo.trace.enabled", false);
+        properties.put("demo.config-snapshot.enabled", false);
+        properties.put("demo.user-aggregates.enabled", false);
+        properties.put("demo.user-cache.enabled", false);
+        properties.put("demo.user-batch.enabled", false);
+        // 建立索引的流式查询用MySQL专用的 fetchSize = Integer.MIN_VALUE，H2不接受
+        properties.put("demo.username-index.enabled", false);
+        properties.put("demo.metrics.mapper.enabled", metrics);
+        return properties;
+    }
+
+    static HikariDataSource hikari(String poolName, String url) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(url);
+        config.setUsername("sa");
+        config.setMaximumPoolSize(16);
+        config.setMinimumIdle(16);
+        return new HikariDataSource(config);
+    }
+
+    static <T extends DataSource> T initialized(T dataSource) {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("benchmark-schema.sql"));
+        populator.setSqlScriptEncoding(StandardCharsets.UTF_8.name());
+        populator.execute(dataSource);
+        return dataSource;
+    }
+
+    /**
+     * 与数据源无关的部分：业务Service、Mapper、SqlSessionFactory、事务管理器
+     */
+    @Configuration
+    @EnableTransactionManagement
+    @MapperScan("com.demo.readwrite.mapper")
+    @Import({UserService.class, ConfigService.class, ConfigSnapshotCache.class, DynamicConfigStore.class, DirectConfigStore.class,
+            UserAggregates.class, UserCache.class, UserBatchLoader.class, UserWriteBehind.class, UsernameIndex.class, RoutingTracer.class,
+            ReplicaLatencyInterceptor.class})
+    static class ServiceConfig {
+
+        @Bean
+        public SqlSessionFactory sqlSessionFactory(DataSource dataSource, ObjectProvider<Interceptor> interceptors)
+                throws Exception {
+            org.apache.ibatis.session.Configuration configuration = new org.apache.ibatis.session.Configuration();
+            configuration.setMapUnderscoreToCamelCase(true);
+            SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setConfiguration(configuration);
+            factory.setPlugins(interceptors.orderedStream().toArray(Interceptor[]::new));
+            return factory.getObject();
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+
+        /** DirectConfigStore按mybatis.configuration构建独立的SqlSessionFactory */
+        @Bean
+        public MybatisProperties mybatisProperties() {
+            MybatisProperties.CoreConfiguration configuration = new MybatisProperties.CoreConfiguration();
+            configuration.setMapUnderscoreToCamelCase(true);
+            MybatisProperties properties = new MybatisProperties();
+            properties.setConfiguration(configuration);
+            return properties;
+        }
+    }
+
+    @Configuration
+    static class PlainConfig {
+
+        @Bean
+        public DataSource dataSource() {
+            return initialized(hikari("BenchPlainPool", USERS_URL));
+        }
+    }
+
+    @Configuration
+    static class ReadwriteSplittingConfig {
+
+        @Bean
+        public DataSource dataSource() throws SQLException, IOException {
+            Map<String, DataSource> dataSources = new HashMap<>();
+            dataSources.put("master", initialized(hikari("BenchMasterPool", USERS_URL)));
+            dataSources.put("slave", hikari("BenchSlavePool", USERS_URL));
+            dataSources.put("slave2", hikari("BenchSlave2Pool", USERS_URL));
+            return YamlShardingSphereDataSourceFactory.createDataSource(dataSources,
+                    READWRITE_SPLITTING_YAML.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy
+    static class DynamicDataSourceConfig {
+
+        @Bean
+        public DataSource dataSource() {
+            DataSource master = initialized(hikari("BenchMasterPool", USERS_URL));
+            DataSource config = initialized(hikari("BenchConfigPool", CONFIG_URL));
+            DynamicDataSourceProvider provider = () -> Map.of("master", master, "config", config);
+            DynamicRoutingDataSource dataSource = new DynamicRoutingDataSource(List.of(provider));
+            dataSource.setPrimary("master");
+            dataSource.setStrict(false);
+            return dataSource;
+        }
+
+        /** 与starter一致：@DS切面在事务切面之前执行，事务拿到的就是切换后的连接 */
+        @Bean
+        public Advisor dynamicDataSourceAnnotationAdvisor() {
+            DynamicDataSourceAnnotationAdvisor advisor = new DynamicDataSourceAnnotationAdvisor(
+                    new DynamicDataSourceAnnotationInterceptor(true, null), DS.class);
+            advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+            return advisor;
+        }
+    }
+
+    @Configuration
+    @Import({QueryMetricsInterceptor.class, SlowQueryLog.class})
+    static class MetricsConfig {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.demo.readwrite.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * benchmarks.jar 入口 - 在JMH命令行的基础上，默认把结果以JSON写入 target/jmh-results/&lt;commit&gt;.json
+ *
+ * 每个提交一份结果(命名见ResultFiles)，可以直接用 jmh.morethan.io 等工具对比两个提交。
+ * 命令行里已经给了 -rf / -rff 时不做任何改动。
+ */
+public final class BenchmarkMain {
+
+    private static final Path RESULTS_DIR = Path.of("target", "jmh-results");
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf") && !arguments.contains("-rff")) {
+            Files.createDirectories(RESULTS_DIR);
+            arguments.add("-rf");
+            arguments.add("json");
+            arguments.add("-rff");
+            arguments.add(RESULTS_DIR.resolve(ResultFiles.resultName() + ".json").toString());
+        }
+        Main.main(arguments.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,126 @@
+package com.demo.readwrite.benchmark;
+
+import com.demo.readwrite.dto.MixedResponses;
+import com.demo.readwrite.entity.SystemConfig;
+import com.demo.readwrite.entity.User;
+import com.demo.readwrite.service.ConfigService;
+import com.demo.readwrite.service.UserService;
+import com.demo.readwrite.service.UsernameIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据访问热路径 - UserService / ConfigService 在各种数据源接线下的单次调用耗时
+ *
+ * 同一方法在 PLAIN 与另外几种接线之间的差值，就是ShardingSphere读写分离或@DS切面带来的开销；
+ * 配置读写在 DYNAMIC_DATASOURCE 与 DIRECT_BINDING 之间的差值，就是直接绑定省掉的@DS每次调用开销；
+ * metrics=true 与 false 的差值是QueryMetricsInterceptor的开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Threads(4)
+public class DataAccessBenchmark {
+
+    /** 与 benchmark-schema.sql 中的用户数一致 */
+    private static final int USER_COUNT = 10_000;
+
+    private static final String[] CONFIG_KEYS = {
+            "app.name", "app.version", "feature.read-your-writes", "feature.user-cache", "limit.max-page-size"
+    };
+
+    @Param({"PLAIN", "READWRITE_SPLITTING", "DYNAMIC_DATASOURCE", "DIRECT_BINDING"})
+    private BenchmarkContexts.Wiring wiring;
+
+    @Param({"false", "true"})
+    private boolean metrics;
+
+    private AnnotationConfigApplicationContext context;
+
+    private UserService userService;
+
+    private ConfigService configService;
+
+    private String[] usernames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start(wiring, metrics);
+        userService = context.getBean(UserService.class);
+        configService = context.getBean(ConfigService.class);
+        usernames = new String[USER_COUNT + 1];
+        for (int id = 1; id <= USER_COUNT; id++) {
+            usernames[id] = "user" + id;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private static int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, USER_COUNT + 1);
+    }
+
+    @Benchmark
+    public User findUserById() {
+        return userService.findUserById((long) randomId());
+    }
+
+    @Benchmark
+    public User findUserByUsername() {
+        return userService.findUserByUsername(usernames[randomId()]);
+    }
+
+    /** 多取接口：每次1~100个随机ID，批次大小各不相同 */
+    @Benchmark
+    public List<User> findUsersByIds() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = random.nextInt(1, 101);
+        List<Long> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add((long) randomId());
+        }
+        return userService.findUsersByIds(ids);
+    }
+
+    /** 列表接口的默认页大小 */
+    @Benchmark
+    public List<User> findUsersAfter() {
+        return userService.findUsersAfter(randomId() - 1, 100);
+    }
+
+    /** 输入联想：user1 ~ user99 这样的前缀各对应上百个用户名，取前10个 */
+    @Benchmark
+    public List<UsernameIndex.Match> suggestUsernames() {
+        return userService.suggestUsernames(usernames[randomId() / 100 + 1], 10);
+    }
+
+    /** 事务内FOR UPDATE读前镜像 + UPDATE，用户名不变只改年龄 */
+    @Benchmark
+    public User updateUser() {
+        int id = randomId();
+        return userService.updateUser((long) id, usernames[id], usernames[id] + "@demo.com",
+                18 + ThreadLocalRandom.current().nextInt(50));
+    }
+
+    @Benchmark
+    public SystemConfig getConfigByKey() {
+        return configService.getConfigByKey(CONFIG_KEYS[ThreadLocalRandom.current().nextInt(CONFIG_KEYS.length)]);
+    }
+
+    @Benchmark
+    public MixedResponses.ConfigMutation updateConfig() {
+        String key = CONFIG_KEYS[ThreadLocalRandom.current().nextInt(CONFIG_KEYS.length)];
+        return configService.updateConfig(key, Integer.toString(ThreadLocalRandom.current().nextInt()), "benchmark");
+    }
+}
@@ -0,0 +1,48 @@
+package com.demo.readwrite.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 结果文件命名 - JMH基准和压测结果都按提交保存，方便两个提交之间对比
+ *
+ * 文件名取 -Dbench.commit，未指定时取当前git提交的短哈希，都取不到时用时间戳。
+ */
+public final class ResultFiles {
+
+    private ResultFiles() {
+    }
+
+    public static String resultName() {
+        String commit = System.getProperty("bench.commit");
+        if (commit == null || commit.isBlank()) {
+            commit = gitCommit();
+        }
+        if (commit == null || commit.isBlank()) {
+            commit = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        }
+        return commit.trim();
+    }
+
+    private static String gitCommit() {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD")
+                    .redirectErrorStream(true)
+                    .start();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                return process.waitFor() == 0 ? line : null;
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
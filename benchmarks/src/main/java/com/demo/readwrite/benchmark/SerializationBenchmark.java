@@ -0,0 +1,77 @@
+package com.demo.readwrite.benchmark;
+
+import com.demo.readwrite.dto.IsoTimestamps;
+import com.demo.readwrite.dto.UserResponses;
+import com.demo.readwrite.entity.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制器响应序列化 - 100个用户的列表响应，HashMap与record两种响应体，默认ObjectMapper与Blackbird两种配置
+ * ObjectMapper的配置与Spring Boot一致：注册JavaTimeModule，日期输出为ISO字符串
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SerializationBenchmark {
+
+    @Param({"false", "true"})
+    private boolean blackbird;
+
+    private ObjectMapper objectMapper;
+
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (blackbird) {
+            objectMapper.registerModule(new BlackbirdModule());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        users = new ArrayList<>(100);
+        for (long id = 1; id <= 100; id++) {
+            User user = new User("user" + id, "user" + id + "@demo.com", 18 + (int) (id % 50));
+            user.setId(id);
+            user.setStatus(1);
+            user.setCreatedAt(now);
+            user.setUpdatedAt(now);
+            users.add(user);
+        }
+    }
+
+    /** 改造前控制器的写法：每次请求新建HashMap */
+    @Benchmark
+    public byte[] mapResponse() throws JsonProcessingException {
+        Map<String, Object> result = new HashMap<>();
+        result.put("operation", "SELECT_ALL_USERS");
+        result.put("routing", UserResponses.ROUTING_SLAVE);
+        result.put("users", users);
+        result.put("count", users.size());
+        result.put("timestamp", new Date().toString());
+        return objectMapper.writeValueAsBytes(result);
+    }
+
+    @Benchmark
+    public byte[] recordResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(new UserResponses.UserList("SELECT_ALL_USERS",
+                UserResponses.ROUTING_SLAVE, users, users.size(), IsoTimestamps.now()));
+    }
+}
@@ -0,0 +1,176 @@
+package com.demo.readwrite.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开放模型压测 - 请求按固定速率的计划时间发出，不等待前一个请求返回
+ *
+ * 延迟从计划发出时间算起而不是实际发出时间，被测应用变慢导致发送滞后时，滞后部分也计入延迟，
+ * 避免闭环压测常见的协同遗漏(coordinated omission)把尾延迟藏掉。
+ * 每个接口一个HdrHistogram Recorder，记录线程无锁写入，统计时整段取出。
+ *
+ * 每个请求在发出时标记所属阶段，预热阶段发出的请求即使在测量阶段才返回也不计入结果；
+ * 在途数超过maxInFlight被丢弃的请求只计入错误和shed，不进入延迟直方图。
+ */
+public class LoadGenerator {
+
+    /** 可记录的最大延迟：1分钟，3位有效数字 */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Workload workload;
+
+    private final int rate;
+
+    private final int maxInFlight;
+
+    private final List<Workload.Endpoint> endpoints;
+
+    private final Recorder[] recorders;
+
+    /** 以下计数只统计测量阶段发出的请求 */
+    private final LongAdder[] issued;
+
+    private final LongAdder[] successes;
+
+    private final LongAdder[] errors;
+
+    private final LongAdder[] shed;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "load-client");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(executor)
+            .build();
+
+    public LoadGenerator(Workload workload, int rate, int maxInFlight) {
+        this.workload = workload;
+        this.rate = rate;
+        this.maxInFlight = maxInFlight;
+        this.endpoints = workload.endpoints();
+        this.recorders = new Recorder[endpoints.size()];
+        this.issued = adders(endpoints.size());
+        this.successes = adders(endpoints.size());
+        this.errors = adders(endpoints.size());
+        this.shed = adders(endpoints.size());
+        for (int i = 0; i < endpoints.size(); i++) {
+            recorders[i] = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        }
+    }
+
+    private static LongAdder[] adders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * 先预热再正式测量，返回正式测量阶段发出的请求的结果
+     * 吞吐 = 测量阶段发出且成功的请求数 / 测量窗口，不含等待在途请求返回的时间
+     */
+    public LoadReport run(Duration warmup, Duration duration) {
+        long start = System.nanoTime();
+        drive(start, start + warmup.toNanos(), false);
+        long measureStart = System.nanoTime();
+        drive(measureStart, measureStart + duration.toNanos(), true);
+        long window = System.nanoTime() - measureStart;
+        awaitInFlight(Duration.ofSeconds(30));
+        LoadReport report = LoadReport.of(endpoints, snapshot(), sum(issued), sum(successes), sum(errors), sum(shed),
+                window, rate);
+        executor.shutdownNow();
+        return report;
+    }
+
+    private void drive(long start, long end, boolean measured) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long n = 0; ; n++) {
+            long intended = start + n * intervalNanos;
+            if (intended >= end) {
+                return;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(workload.next(random), intended, measured, random);
+        }
+    }
+
+    private void send(int endpoint, long intended, boolean measured, ThreadLocalRandom random) {
+        if (measured) {
+            issued[endpoint].increment();
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            if (measured) {
+                shed[endpoint].increment();
+                errors[endpoint].increment();
+            }
+            return;
+        }
+        client.sendAsync(endpoints.get(endpoint).request().apply(random), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    inFlight.decrementAndGet();
+                    if (!measured) {
+                        return;
+                    }
+                    if (failure != null || response.statusCode() >= 400) {
+                        errors[endpoint].increment();
+                    } else {
+                        successes[endpoint].increment();
+                    }
+                    record(endpoint, intended);
+                });
+    }
+
+    private void record(int endpoint, long intended) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+        recorders[endpoint].recordValue(Math.min(Math.max(micros, 0), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    private void awaitInFlight(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private Histogram[] snapshot() {
+        Histogram[] histograms = new Histogram[recorders.length];
+        for (int i = 0; i < recorders.length; i++) {
+            histograms[i] = recorders[i].getIntervalHistogram();
+        }
+        return histograms;
+    }
+
+    private static long[] sum(LongAdder[] adders) {
+        long[] counts = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            counts[i] = adders[i].sum();
+        }
+        return counts;
+    }
+}
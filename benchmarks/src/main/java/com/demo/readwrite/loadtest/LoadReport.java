@@ -0,0 +1,119 @@
+package com.demo.readwrite.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测报告 - 每个接口的吞吐、p50/p99/p999延迟和错误率，可写成JSON并与基线报告对比
+ *
+ * requests是测量阶段发出的请求数；errors包含失败的响应和被丢弃(shed)的请求；
+ * throughput只算成功的请求；延迟只来自真正发出并返回(成功或失败)的请求。
+ */
+public record LoadReport(@JsonProperty("target_rate") int targetRate,
+                         @JsonProperty("duration_seconds") double durationSeconds,
+                         Map<String, EndpointStats> endpoints) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public record EndpointStats(long requests,
+                                long errors,
+                                long shed,
+                                @JsonProperty("error_rate") double errorRate,
+                                double throughput,
+                                @JsonProperty("p50_ms") double p50Ms,
+                                @JsonProperty("p99_ms") double p99Ms,
+                                @JsonProperty("p999_ms") double p999Ms,
+                                @JsonProperty("max_ms") double maxMs) {
+    }
+
+    static LoadReport of(List<Workload.Endpoint> endpoints, Histogram[] histograms, long[] requests, long[] successes,
+                         long[] errors, long[] shed, long windowNanos, int targetRate) {
+        double seconds = windowNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        for (int i = 0; i < endpoints.size(); i++) {
+            Histogram histogram = histograms[i];
+            if (requests[i] == 0) {
+                continue;
+            }
+            stats.put(endpoints.get(i).name(), new EndpointStats(
+                    requests[i],
+                    errors[i],
+                    shed[i],
+                    (double) errors[i] / requests[i],
+                    successes[i] / seconds,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue())));
+        }
+        return new LoadReport(targetRate, seconds, stats);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    public static LoadReport read(Path path) throws IOException {
+        return MAPPER.readValue(path.toFile(), LoadReport.class);
+    }
+
+    public void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        MAPPER.writeValue(path.toFile(), this);
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%-28s %10s %8s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "shed", "ok/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+        endpoints.forEach((name, s) -> out.printf("%-28s %10d %8d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                name, s.requests(), s.errors(), s.shed(), s.throughput(), s.p50Ms(), s.p99Ms(), s.p999Ms(), s.maxMs()));
+    }
+
+    /**
+     * 与基线对比，返回超过阈值的项；只对比两次都有的接口
+     *
+     * @param maxRegression        p50/p99上升或吞吐下降超过该比例视为退化
+     * @param maxErrorRateIncrease 错误率上升超过该绝对值视为退化
+     */
+    public List<String> regressionsAgainst(LoadReport baseline, double maxRegression, double maxErrorRateIncrease) {
+        List<String> regressions = new ArrayList<>();
+        endpoints.forEach((name, current) -> {
+            EndpointStats base = baseline.endpoints().get(name);
+            if (base == null) {
+                return;
+            }
+            checkLatency(regressions, name, "p50", base.p50Ms(), current.p50Ms(), maxRegression);
+            checkLatency(regressions, name, "p99", base.p99Ms(), current.p99Ms(), maxRegression);
+            if (current.throughput() < base.throughput() * (1 - maxRegression)) {
+                regressions.add(String.format("%s 吞吐 %.1f -> %.1f req/s", name, base.throughput(), current.throughput()));
+            }
+            if (current.errorRate() > base.errorRate() + maxErrorRateIncrease) {
+                regressions.add(String.format("%s 错误率 %.2f%% -> %.2f%%", name,
+                        base.errorRate() * 100, current.errorRate() * 100));
+            }
+        });
+        return regressions;
+    }
+
+    private static void checkLatency(List<String> regressions, String name, String percentile,
+                                     double base, double current, double maxRegression) {
+        if (current > base * (1 + maxRegression)) {
+            regressions.add(String.format("%s %s %.2fms -> %.2fms (+%.0f%%)", name, percentile,
+                    base, current, base > 0 ? (current / base - 1) * 100 : 100));
+        }
+    }
+}
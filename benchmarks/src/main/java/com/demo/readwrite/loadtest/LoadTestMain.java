@@ -0,0 +1,58 @@
+package com.demo.readwrite.loadtest;
+
+import com.demo.readwrite.benchmark.ResultFiles;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 端到端压测入口
+ *
+ * 不指定 --target 时用H2替身库在进程内启动应用；按 --mix 的类别权重、以 --rate 的开放模型速率压测 /api/* 和 /mixed/*，
+ * 打印各接口吞吐、p50/p99/p999延迟和错误率，报告写入 target/loadtest/&lt;commit&gt;.json。
+ * 指定 --baseline 时与基线报告对比，有退化则以状态码2退出，可直接用于CI。
+ */
+public final class LoadTestMain {
+
+    private static final Path RESULTS_DIR = Path.of("target", "loadtest");
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        StandInApplication app = options.target() == null ? StandInApplication.start() : null;
+        LoadReport report;
+        try {
+            String baseUrl = app != null ? app.baseUrl() : options.target();
+            System.out.printf("压测 %s: %d req/s, 预热 %ds, 测量 %ds, 组合 %s%n", baseUrl, options.rate(),
+                    options.warmup().toSeconds(), options.duration().toSeconds(), options.mix());
+            LoadGenerator generator = new LoadGenerator(new Workload(baseUrl, options.mix()),
+                    options.rate(), options.maxInFlight());
+            report = generator.run(options.warmup(), options.duration());
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+        }
+
+        report.print(System.out);
+        Path output = options.output() != null
+                ? options.output()
+                : RESULTS_DIR.resolve(ResultFiles.resultName() + ".json");
+        report.write(output);
+        System.out.println("报告已写入 " + output);
+
+        if (options.baseline() != null) {
+            List<String> regressions = report.regressionsAgainst(LoadReport.read(options.baseline()),
+                    options.maxRegression(), options.maxErrorRateIncrease());
+            if (!regressions.isEmpty()) {
+                System.out.println("与基线 " + options.baseline() + " 相比出现退化:");
+                regressions.forEach(line -> System.out.println("  " + line));
+                System.exit(2);
+            }
+            System.out.println("与基线 " + options.baseline() + " 相比未超过阈值");
+        }
+        System.exit(0);
+    }
+}
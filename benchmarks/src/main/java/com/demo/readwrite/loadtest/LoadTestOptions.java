@@ -0,0 +1,72 @@
+package com.demo.readwrite.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测参数 - 命令行 --key=value 形式，未给出的取默认值
+ *
+ * @param target                 被测应用地址；为空时在进程内用H2替身库启动应用
+ * @param rate                   目标请求速率(次/秒)，开放模型：按计划时间发出，不等待前一个请求返回
+ * @param warmup                 预热时长，期间的结果不计入报告
+ * @param duration               正式测量时长
+ * @param mix                    类别权重，如 read=80, write=15, config=5
+ * @param maxInFlight            在途请求上限，超过时本次请求直接记为错误，防止被测应用卡死时压测端内存耗尽
+ * @param output                 报告文件，默认 target/loadtest/&lt;commit&gt;.json
+ * @param baseline               基线报告；给出时与之对比，超过阈值则以非0状态退出
+ * @param maxRegression          延迟(p50/p99)上升或吞吐下降的相对阈值
+ * @param maxErrorRateIncrease   错误率上升的绝对阈值
+ */
+public record LoadTestOptions(String target,
+                              int rate,
+                              Duration warmup,
+                              Duration duration,
+                              Map<String, Integer> mix,
+                              int maxInFlight,
+                              Path output,
+                              Path baseline,
+                              double maxRegression,
+                              double maxErrorRateIncrease) {
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("参数格式应为 --key=value: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String baseline = values.get("baseline");
+        String output = values.get("output");
+        return new LoadTestOptions(
+                values.get("target"),
+                Integer.parseInt(values.getOrDefault("rate", "200")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "10"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+                parseMix(values.getOrDefault("mix", "read:80,write:15,config:5")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "2000")),
+                output != null ? Path.of(output) : null,
+                baseline != null ? Path.of(baseline) : null,
+                Double.parseDouble(values.getOrDefault("max-regression", "0.10")),
+                Double.parseDouble(values.getOrDefault("max-error-rate-increase", "0.01")));
+    }
+
+    private static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("mix格式应为 类别:权重,...: " + spec);
+            }
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) {
+                mix.put(kv[0].trim(), weight);
+            }
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,173 @@
+package com.demo.readwrite.loadtest;
+
+import com.demo.readwrite.ReadWriteDemoApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用H2替身库在进程内启动应用 - 不需要Docker和MySQL主从即可压测
+ *
+ * master/slave/slave2 和应用的默认数据源(spring.datasource)指向同一个H2内存库(没有复制延迟)，config 指向另一个；
+ * 表结构和初始数据与JMH基准相同(benchmark-schema.sql)。复制延迟监控依赖 SHOW SLAVE STATUS，在替身库上关闭；
+ * 用户名索引的流式建立依赖MySQL驱动的流式结果集，也关闭。
+ * 其他配置沿用 application-shardingsphere.yml 和 start 传入的profile，压测结果反映的是应用和路由层，而不是数据库本身。
+ *
+ * ShardingSphere 5.4.1需要SnakeYAML 1.33，Spring Boot 3.2的配置文件加载需要2.x中才有的API，
+ * 所以关闭Spring Boot自己的配置文件加载(Spring的YamlPropertiesFactoryBean同样需要2.x)，改由这里直接用SnakeYAML读取各profile的yml。
+ */
+public class StandInApplication implements AutoCloseable {
+
+    private static final String MAIN_URL = "jdbc:h2:mem:loadtest_main;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final String CONFIG_URL = "jdbc:h2:mem:loadtest_config;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final String H2_DRIVER = "org.h2.Driver";
+
+    private final ConfigurableApplicationContext context;
+
+    private StandInApplication(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * 以shardingsphere加上profiles启动，后面的profile优先
+     */
+    public static StandInApplication start(String... profiles) {
+        initialize(MAIN_URL);
+        initialize(CONFIG_URL);
+        List<String> active = new ArrayList<>(List.of("shardingsphere"));
+        active.addAll(List.of(profiles));
+        SpringApplication application = new SpringApplication(ReadWriteDemoApplication.class);
+        application.setDefaultProperties(Map.of("spring.config.location", "optional:classpath:/stand-in-none/"));
+        application.setAdditionalProfiles(active.toArray(String[]::new));
+        application.addInitializers(context -> {
+            MutablePropertySources sources = context.getEnvironment().getPropertySources();
+            // 放在最高优先级，覆盖yml中的MySQL连接
+            sources.addFirst(new MapPropertySource("stand-in", properties()));
+            for (int i = active.size() - 1; i >= 0; i--) {
+                addYaml(sources, "application-" + active.get(i) + ".yml");
+            }
+            addYaml(sources, "application.yml");
+            context.getBeanFactory().registerSingleton("standInBenchmarkExcludeFilter", new BenchmarkExcludeFilter());
+        });
+        return new StandInApplication(application.run());
+    }
+
+    /**
+     * 按调用顺序从高到低排在默认属性之前
+     */
+    private static void addYaml(MutablePropertySources sources, String name) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        try (InputStream in = new ClassPathResource(name).getInputStream()) {
+            flatten("", new Yaml().load(in), properties);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MapPropertySource source = new MapPropertySource(name, properties);
+        if (sources.contains("defaultProperties")) {
+            sources.addBefore("defaultProperties", source);
+        } else {
+            sources.addLast(source);
+        }
+    }
+
+    public String baseUrl() {
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        return "http://localhost:" + port;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    private static void initialize(String url) {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("benchmark-schema.sql"));
+        populator.setSqlScriptEncoding(StandardCharsets.UTF_8.name());
+        populator.execute(new SimpleDriverDataSource(new org.h2.Driver(), url, "sa", ""));
+    }
+
+    /**
+     * 组件扫描覆盖整个com.demo.readwrite，会扫到JMH基准上下文里的@Configuration(各自定义了dataSource)，排除掉
+     */
+    static final class BenchmarkExcludeFilter extends TypeExcludeFilter {
+
+        @Override
+        public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+            return metadataReader.getClassMetadata().getClassName().startsWith("com.demo.readwrite.benchmark.");
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj != null && obj.getClass() == getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return getClass().hashCode();
+        }
+    }
+
+    /**
+     * 嵌套的Map和List展开成 a.b[0].c 形式的键，与Spring Boot加载yml的结果一致
+     */
+    private static void flatten(String prefix, Object value, Map<String, Object> properties) {
+        if (value instanceof Map<?, ?> map) {
+            map.forEach((key, child) -> flatten(prefix.isEmpty() ? String.valueOf(key) : prefix + "." + key, child, properties));
+        } else if (value instanceof List<?> list) {
+            for (int i = 0; i < list.size(); i++) {
+                flatten(prefix + "[" + i + "]", list.get(i), properties);
+            }
+        } else if (value != null) {
+            properties.put(prefix, value);
+        }
+    }
+
+    private static Map<String, Object> properties() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        for (String name : new String[]{"master", "slave", "slave2"}) {
+            String prefix = "spring.shardingsphere.datasource." + name + ".";
+            properties.put(prefix + "driver-class-name", H2_DRIVER);
+            properties.put(prefix + "jdbc-url", MAIN_URL);
+            properties.put(prefix + "username", "sa");
+            properties.put(prefix + "password", "");
+        }
+        properties.put("spring.shardingsphere.props.sql-show", false);
+        String config = "spring.datasource.dynamic.datasource.config.";
+        properties.put(config + "driver-class-name", H2_DRIVER);
+        properties.put(config + "url", CONFIG_URL);
+        properties.put(config + "username", "sa");
+        properties.put(config + "password", "");
+        // 依赖中的ShardingSphere 5.4.1没有Spring Boot starter，Baomidou 4.3.0的starter只在spring.factories中注册(Spring Boot 2)，
+        // 在Spring Boot 3下上面两组配置都不会创建数据源；不设置spring.datasource时Spring Boot会另建一个空的内嵌H2
+        properties.put("spring.datasource.driver-class-name", H2_DRIVER);
+        properties.put("spring.datasource.url", MAIN_URL);
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("demo.replication-lag.enabled", false);
+        // 建立用户名索引的流式查询用MySQL专用的 fetchSize = Integer.MIN_VALUE，H2不接受；压测负载不含输入联想
+        properties.put("demo.username-index.enabled", false);
+        return properties;
+    }
+}
@@ -0,0 +1,165 @@
+package com.demo.readwrite.loadtest;
+
+import com.demo.readwrite.benchmark.ResultFiles;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动耗时探测 - 启动应用进程，测量多久报告就绪、多久之后的请求才和稳态一样快
+ *
+ * 1. ready_ms: 从启动进程到 /actuator/health/readiness 返回200
+ * 2. first_response_ms: 就绪后的第一个探测请求返回的时刻
+ * 3. first_fast_request_ms: 探测请求第一次在 --fast-ms 内返回200的时刻，此前的请求还在为建连、类加载和JIT付出额外延迟
+ * 4. application: 应用自己记录的启动时间线(/diagnostics/startup)
+ *
+ * 时间都从启动进程算起。探测请求在就绪后才发出，与按Readiness摘挂流量的负载均衡一致；请求逐个发出，间隔 --interval-ms。
+ * 默认以fast-startup profile启动根工程构建出的jar，需要 docker/mysql 中的主从库；
+ * 用 --command 可以换成AppCDS镜像或其他启动方式。报告写入 target/startup/&lt;commit&gt;.json，应用输出写入同目录的 app.log。
+ */
+public final class StartupProbe {
+
+    private static final Path RESULTS_DIR = Path.of("target", "startup");
+
+    private static final String DEFAULT_COMMAND =
+            "java -jar target/readwrite-demo-1.0.0.jar --spring.profiles.active=shardingsphere,fast-startup";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private StartupProbe() {
+    }
+
+    /**
+     * 启动报告，时间均为距启动进程的毫秒数；超时未达到的项为-1
+     */
+    public record StartupReport(String command,
+                                @JsonProperty("fast_threshold_ms") long fastThresholdMs,
+                                @JsonProperty("ready_ms") long readyMs,
+                                @JsonProperty("first_response_ms") long firstResponseMs,
+                                @JsonProperty("first_fast_request_ms") long firstFastRequestMs,
+                                @JsonProperty("requests_until_fast") int requestsUntilFast,
+                                Map<String, Object> application) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("参数格式应为 --key=value: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String command = values.getOrDefault("command", DEFAULT_COMMAND);
+        String baseUrl = values.getOrDefault("target", "http://localhost:8080");
+        String path = values.getOrDefault("path", "/api/users/1");
+        long fastMillis = Long.parseLong(values.getOrDefault("fast-ms", "20"));
+        long intervalMillis = Long.parseLong(values.getOrDefault("interval-ms", "10"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(values.getOrDefault("timeout", "120")));
+        Path output = values.containsKey("output")
+                ? Path.of(values.get("output"))
+                : RESULTS_DIR.resolve(ResultFiles.resultName() + ".json");
+
+        Files.createDirectories(RESULTS_DIR);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+
+        System.out.println("启动: " + command);
+        long launch = System.nanoTime();
+        Process process = new ProcessBuilder(List.of(command.trim().split("\\s+")))
+                .redirectErrorStream(true)
+                .redirectOutput(RESULTS_DIR.resolve("app.log").toFile())
+                .start();
+        StartupReport report;
+        try {
+            long deadline = launch + timeout.toNanos();
+            long readyMs = -1;
+            long firstResponseMs = -1;
+            long firstFastMs = -1;
+            int requests = 0;
+            while (firstFastMs < 0 && System.nanoTime() < deadline && process.isAlive()) {
+                if (readyMs < 0) {
+                    if (get(client, baseUrl + "/actuator/health/readiness") == 200) {
+                        readyMs = sinceLaunch(launch);
+                        continue;
+                    }
+                } else {
+                    long start = System.nanoTime();
+                    int status = get(client, baseUrl + path);
+                    long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    requests++;
+                    if (firstResponseMs < 0 && status > 0) {
+                        firstResponseMs = sinceLaunch(launch);
+                    }
+                    if (status == 200 && latencyMs <= fastMillis) {
+                        firstFastMs = sinceLaunch(launch);
+                        continue;
+                    }
+                }
+                Thread.sleep(intervalMillis);
+            }
+            Map<String, Object> application = readyMs >= 0 ? applicationTimeline(client, baseUrl) : Map.of();
+            report = new StartupReport(command, fastMillis, readyMs, firstResponseMs, firstFastMs,
+                    firstFastMs >= 0 ? requests : -1, application);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+
+        System.out.printf("就绪 %dms, 首个响应 %dms, 首个%dms内的请求 %dms (第%d个请求)%n", report.readyMs(),
+                report.firstResponseMs(), fastMillis, report.firstFastRequestMs(), report.requestsUntilFast());
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        MAPPER.writeValue(output.toFile(), report);
+        System.out.println("报告已写入 " + output);
+        System.exit(report.firstFastRequestMs() >= 0 ? 0 : 1);
+    }
+
+    private static long sinceLaunch(long launch) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launch);
+    }
+
+    /** 返回状态码；连接失败(应用尚未监听端口)时返回0 */
+    private static int get(HttpClient client, String url) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(5)).GET().build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static Map<String, Object> applicationTimeline(HttpClient client, String baseUrl) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/diagnostics/startup"))
+                .timeout(Duration.ofSeconds(5)).GET().build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            Map<String, Object> body = MAPPER.readValue(response.body(), new TypeReference<>() {
+            });
+            Object startup = body.get("startup");
+            return startup instanceof Map<?, ?> ? MAPPER.convertValue(startup, new TypeReference<>() {
+            }) : Map.of();
+        } catch (IOException e) {
+            return Map.of();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.demo.readwrite.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * 压测请求组合 - 按类别权重随机选择接口，类别内各接口等概率
+ *
+ * - read:   /api/users/{id}、/api/users/search、/api/users/page、/api/users/batch、/mixed/users
+ * - write:  PUT /api/users/{id}、POST /api/users、POST /mixed/users
+ * - config: /mixed/config/{key}、/mixed/config、PUT /mixed/config/{key}
+ *
+ * 用户ID和配置键与 benchmark-schema.sql 的初始数据一致；新建用户的用户名带运行ID，重复运行不会冲突。
+ */
+public class Workload {
+
+    /** 与 benchmark-schema.sql 中的用户数一致 */
+    static final int USER_COUNT = 10_000;
+
+    static final String[] CONFIG_KEYS = {
+            "app.name", "app.version", "feature.read-your-writes", "feature.user-cache", "limit.max-page-size"
+    };
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    public record Endpoint(String name, String category, Function<ThreadLocalRandom, HttpRequest> request) {
+    }
+
+    private final String baseUrl;
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong created = new AtomicLong();
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+
+    /** 各类别的累计权重，与members一一对应 */
+    private final int[] cumulativeWeights;
+
+    /** 各类别内接口在endpoints中的下标 */
+    private final int[][] members;
+
+    public Workload(String baseUrl, Map<String, Integer> mix) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        define();
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("请求组合为空");
+        }
+        cumulativeWeights = new int[mix.size()];
+        members = new int[mix.size()][];
+        int index = 0;
+        int total = 0;
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            String category = entry.getKey();
+            int[] indexes = IntStream.range(0, endpoints.size())
+                    .filter(i -> endpoints.get(i).category().equals(category))
+                    .toArray();
+            if (indexes.length == 0) {
+                throw new IllegalArgumentException("未知的请求类别: " + category);
+            }
+            total += entry.getValue();
+            cumulativeWeights[index] = total;
+            members[index++] = indexes;
+        }
+    }
+
+    public List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    /**
+     * 随机选择下一个接口，返回其在endpoints()中的下标
+     */
+    public int next(ThreadLocalRandom random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int category = 0;
+        while (pick >= cumulativeWeights[category]) {
+            category++;
+        }
+        int[] candidates = members[category];
+        return candidates[random.nextInt(candidates.length)];
+    }
+
+    private void define() {
+        read("GET /api/users/{id}", r -> get("/api/users/" + userId(r)));
+        read("GET /api/users/search", r -> get("/api/users/search?username=user" + userId(r)));
+        read("GET /api/users/page", r -> get("/api/users/page?size=20"));
+        read("GET /api/users/batch", r -> get("/api/users/batch?ids="
+                + userId(r) + "," + userId(r) + "," + userId(r) + "," + userId(r) + "," + userId(r)));
+        read("GET /mixed/users", r -> get("/mixed/users"));
+
+        write("PUT /api/users/{id}", r -> {
+            int id = userId(r);
+            return form("PUT", "/api/users/" + id,
+                    "username=user" + id + "&email=user" + id + "%40demo.com&age=" + (18 + r.nextInt(50)));
+        });
+        write("POST /api/users", r -> newUser("/api/users"));
+        write("POST /mixed/users", r -> newUser("/mixed/users"));
+
+        config("GET /mixed/config/{key}", r -> get("/mixed/config/" + configKey(r)));
+        config("GET /mixed/config", r -> get("/mixed/config"));
+        config("PUT /mixed/config/{key}", r -> form("PUT", "/mixed/config/" + configKey(r),
+                "value=" + r.nextInt(1000) + "&description=" + URLEncoder.encode("压测", StandardCharsets.UTF_8)));
+    }
+
+    private void read(String name, Function<ThreadLocalRandom, HttpRequest> request) {
+        endpoints.add(new Endpoint(name, "read", request));
+    }
+
+    private void write(String name, Function<ThreadLocalRandom, HttpRequest> request) {
+        endpoints.add(new Endpoint(name, "write", request));
+    }
+
+    private void config(String name, Function<ThreadLocalRandom, HttpRequest> request) {
+        endpoints.add(new Endpoint(name, "config", request));
+    }
+
+    private HttpRequest newUser(String path) {
+        String username = "lt-" + runId + "-" + created.incrementAndGet();
+        return form("POST", path, "username=" + username + "&email=" + username + "%40demo.com&age=30");
+    }
+
+    private static int userId(ThreadLocalRandom random) {
+        return random.nextInt(1, USER_COUNT + 1);
+    }
+
+    private static String configKey(ThreadLocalRandom random) {
+        return CONFIG_KEYS[random.nextInt(CONFIG_KEYS.length)];
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest form(String method, String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+-- 基准测试用H2(MySQL模式)表结构，与 docker/mysql/scripts 下的 users / system_config 保持一致
+-- 每次建立测试上下文时重建，保证各组测试从相同数据开始
+
+DROP TABLE IF EXISTS users;
+DROP TABLE IF EXISTS system_config;
+
+CREATE TABLE users (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(50) NOT NULL UNIQUE,
+    email VARCHAR(100) NOT NULL,
+    age INT,
+    status TINYINT DEFAULT 1,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_email ON users (email);
+CREATE INDEX idx_status_created_id ON users (status, created_at, id);
+CREATE INDEX idx_status_age ON users (status, age);
+
+CREATE TABLE system_config (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    config_key VARCHAR(100) NOT NULL UNIQUE,
+    config_value TEXT,
+    description VARCHAR(255),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- 10000个用户: user1 ~ user10000
+-- SYSTEM_RANGE的列名是大写X，DATABASE_TO_LOWER=TRUE时未加引号的x会被转成小写而找不到
+INSERT INTO users (username, email, age, status)
+SELECT CONCAT('user', r."X"), CONCAT('user', r."X", '@demo.com'), 18 + MOD(r."X", 50), CASE WHEN MOD(r."X", 5) = 0 THEN 0 ELSE 1 END
+FROM SYSTEM_RANGE(1, 10000) r;
+
+INSERT INTO system_config (config_key, config_value, description) VALUES
+('app.name', 'ReadWrite Demo', '应用名称'),
+('app.version', '1.0.0', '应用版本'),
+('feature.read-your-writes', 'true', '读己之写开关'),
+('feature.user-cache', 'true', '用户缓存开关'),
+('limit.max-page-size', '500', '分页最大条数');
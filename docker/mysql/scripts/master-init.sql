@@ -21,7 +21,10 @@ CREATE TABLE IF NOT EXISTS users (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_username (username),
     INDEX idx_email (email),
-    INDEX idx_status (status)
+    -- 状态feed的键集分页: WHERE status = ? AND (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC
+    INDEX idx_status_created_id (status, created_at, id),
+    -- 聚合校准的分组计数: SELECT status, age, COUNT(*) ... GROUP BY status, age，只扫描该覆盖索引
+    INDEX idx_status_age (status, age)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户表';
 
 -- 显示master状态，用于配置slave
@@ -3,6 +3,11 @@
 -- 创建业务数据库
 CREATE DATABASE IF NOT EXISTS readwrite_demo CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci;
 
+-- 表结构及索引(含 idx_status_created_id、idx_status_age)由主库建表语句经binlog复制到从库，这里不重复创建
+
+-- 允许应用账号查询复制状态，用于复制延迟监控
+GRANT REPLICATION CLIENT ON *.* TO 'demo'@'%';
+
 -- 配置主从复制
 -- 注意：在实际生产中，需要先获取主库的MASTER_LOG_FILE和MASTER_LOG_POS
 CHANGE MASTER TO 
@@ -1,209 +1,534 @@
 package com.demo.readwrite;
 
+import com.demo.readwrite.dto.EntityTags;
+import com.demo.readwrite.dto.IsoTimestamps;
+import com.demo.readwrite.dto.UserResponses;
 import com.demo.readwrite.entity.User;
+import com.demo.readwrite.routing.DataSourceBulkheads;
+import com.demo.readwrite.routing.DataSourcePermits;
+import com.demo.readwrite.routing.ReadYourWritesInterceptor;
+import com.demo.readwrite.routing.ReplicaHealthRegistry;
+import com.demo.readwrite.routing.ReplicaLoadTracker;
+import com.demo.readwrite.routing.ReplicationLagMonitor;
+import com.demo.readwrite.service.KeysetCursor;
+import com.demo.readwrite.service.UserExportService;
+import com.demo.readwrite.service.UserImportService;
 import com.demo.readwrite.service.UserService;
+import com.demo.readwrite.service.UsernameIndex;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.apache.shardingsphere.infra.hint.HintManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 读写分离测试Controller - 使用ShardingSphere自动读写分离
+ *
+ * 访问数据库的接口返回CompletableFuture，开启 demo.bulkhead.enabled 后在主库/从库舱壁线程池中执行(见DataSourceBulkheads)；
+ * 参数校验仍在请求线程上完成。流式导入导出直接读写响应流，不进入舱壁
  */
 @RestController
 @RequestMapping("/api")
 public class ReadWriteController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final int MAX_BATCH_IDS = 500;
+
+    private static final int MAX_SUGGESTIONS = 50;
+
+    private static final String AUTH_NOTE = "强制使用主库进行认证查询，保证数据实时性";
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ReadYourWritesInterceptor readYourWritesInterceptor;
+
+    @Autowired
+    private ReplicationLagMonitor replicationLagMonitor;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSourceBulkheads bulkheads;
+
+    private byte[] statusPayload;
+
     /**
      * 查询所有用户 - ShardingSphere自动路由到从库
      */
     @GetMapping("/users")
-    public Map<String, Object> getUsers() {
-        System.out.println("\n========== 查询所有用户操作开始 ==========");
-        
-        List<User> users = userService.findAllUsers();
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "SELECT_ALL_USERS");
-        result.put("routing", "ShardingSphere自动路由到从库");
-        result.put("users", users);
-        result.put("count", users.size());
-        result.put("timestamp", new Date().toString());
-        
-        System.out.println("========== 查询所有用户操作结束 ==========\n");
-        return result;
+    public CompletableFuture<UserResponses.UserList> getUsers() {
+        return bulkheads.read(() -> {
+            List<User> users = userService.findAllUsers();
+            return new UserResponses.UserList("SELECT_ALL_USERS", UserResponses.ROUTING_SLAVE,
+                    users, users.size(), IsoTimestamps.now());
+        });
+    }
+
+    /**
+     * 键集分页查询用户 - ShardingSphere自动路由到从库
+     * 按ID升序，next_cursor为空表示已到最后一页
+     */
+    @GetMapping("/users/page")
+    public CompletableFuture<UserResponses.UserPage> getUsersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") Integer size) {
+        int pageSize = resolvePageSize(size);
+        long afterId = cursor == null || cursor.isEmpty() ? 0 : decodeCursor(cursor).id();
+        return bulkheads.read(() -> {
+            // 多取一行用于判断是否还有下一页
+            List<User> users = userService.findUsersAfter(afterId, pageSize + 1);
+            boolean hasMore = users.size() > pageSize;
+            if (hasMore) {
+                users = users.subList(0, pageSize);
+            }
+            String nextCursor = hasMore ? KeysetCursor.ofId(users.get(users.size() - 1).getId()).encode() : null;
+            return new UserResponses.UserPage("SELECT_USERS_PAGE", UserResponses.ROUTING_SLAVE,
+                    users, users.size(), nextCursor, hasMore, IsoTimestamps.now());
+        });
+    }
+
+    /**
+     * 按状态的用户feed - ShardingSphere自动路由到从库
+     * 按创建时间倒序键集分页，next_cursor为空表示已到最后一页
+     */
+    @GetMapping("/users/feed")
+    public CompletableFuture<UserResponses.UserFeed> getUserFeed(
+            @RequestParam(defaultValue = "1") Integer status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") Integer size) {
+        int pageSize = resolvePageSize(size);
+        KeysetCursor seek = cursor == null || cursor.isEmpty() ? null : decodeCursor(cursor);
+        if (seek != null && seek.createdAt() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "游标不属于状态feed");
+        }
+        return bulkheads.read(() -> {
+            List<User> users = userService.findUsersByStatusPage(status, seek, pageSize + 1);
+            boolean hasMore = users.size() > pageSize;
+            if (hasMore) {
+                users = users.subList(0, pageSize);
+            }
+            String nextCursor = null;
+            if (hasMore) {
+                User last = users.get(users.size() - 1);
+                nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+            }
+            return new UserResponses.UserFeed("SELECT_USER_FEED_BY_STATUS", UserResponses.ROUTING_SLAVE,
+                    status, users, users.size(), nextCursor, hasMore, IsoTimestamps.now());
+        });
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return 20;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    private KeysetCursor decodeCursor(String cursor) {
+        try {
+            return KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     /**
      * 根据ID查询用户 - ShardingSphere自动路由到从库
+     * 响应带ETag/Last-Modified，If-None-Match匹配时返回304；命中UserCache时不访问数据库
      */
     @GetMapping("/users/{id}")
-    public Map<String, Object> getUserById(@PathVariable Long id) {
-        System.out.println("\n========== 根据ID查询用户操作开始 ==========");
-        
-        User user = userService.findUserById(id);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "SELECT_USER_BY_ID");
-        result.put("routing", "ShardingSphere自动路由到从库");
-        result.put("user_id", id);
-        result.put("user", user);
-        result.put("found", user != null);
-        result.put("timestamp", new Date().toString());
-        
-        System.out.println("========== 根据ID查询用户操作结束 ==========\n");
-        return result;
+    public CompletableFuture<ResponseEntity<UserResponses.UserDetail>> getUserById(@PathVariable Long id) {
+        return bulkheads.read(() -> {
+            User user = userService.findUserById(id);
+            UserResponses.UserDetail body = new UserResponses.UserDetail("SELECT_USER_BY_ID", UserResponses.ROUTING_SLAVE,
+                    id, user, user != null, IsoTimestamps.now());
+            return user != null ? EntityTags.ok(EntityTags.of(user), user.getUpdatedAt(), body) : ResponseEntity.ok(body);
+        });
+    }
+
+    /**
+     * 按ID批量查询用户 - 与单个查询共用缓存和IN合并查询，自动路由到从库
+     * ids为逗号分隔的ID列表，按请求顺序返回找到的用户
+     */
+    @GetMapping("/users/batch")
+    public CompletableFuture<UserResponses.UserBatch> getUsersByIds(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids最多" + MAX_BATCH_IDS + "个");
+        }
+        return bulkheads.read(() -> {
+            List<User> users = userService.findUsersByIds(ids);
+            List<Long> missing = new ArrayList<>();
+            Set<Long> found = new HashSet<>();
+            for (User user : users) {
+                found.add(user.getId());
+            }
+            for (Long id : new LinkedHashSet<>(ids)) {
+                if (!found.contains(id)) {
+                    missing.add(id);
+                }
+            }
+            return new UserResponses.UserBatch("SELECT_USERS_BY_IDS", UserResponses.ROUTING_SLAVE,
+                    ids.size(), users, users.size(), missing, IsoTimestamps.now());
+        });
     }
 
     /**
      * 创建用户 - ShardingSphere自动路由到主库
      */
     @PostMapping("/users")
-    public Map<String, Object> createUser(
+    public CompletableFuture<UserResponses.UserCreated> createUser(
             @RequestParam String username,
             @RequestParam String email,
             @RequestParam(defaultValue = "25") Integer age) {
-        System.out.println("\n========== 创建用户操作开始 ==========");
+        return bulkheads.write(() -> {
+            User user = userService.createUser(username, email, age);
+            return new UserResponses.UserCreated("INSERT_USER", UserResponses.ROUTING_MASTER, user, IsoTimestamps.now());
+        });
+    }
+
+    /**
+     * 批量导入用户 - 流式解析请求体(NDJSON或CSV)，按块多行INSERT写入主库
+     * 响应为NDJSON：每行一个导入结果(生成的ID或错误)，最后一行为汇总，按块刷出，内存占用与上传大小无关
+     */
+    @PostMapping(value = "/users/import", consumes = {"application/x-ndjson", "text/csv", "text/plain"})
+    public void importUsers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Integer chunkSize,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        UserImportService.Format importFormat = "csv".equalsIgnoreCase(format)
+                ? UserImportService.Format.CSV : UserImportService.Format.NDJSON;
+        int chunk = userImportService.resolveChunkSize(chunkSize);
+        
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        readYourWritesInterceptor.issueToken(response);
         
-        User user = userService.createUser(username, email, age);
+        try (JsonGenerator out = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            out.setRootValueSeparator(null);
+            UserImportService.ImportSummary summary = userImportService.importUsers(
+                    request.getReader(), importFormat, chunk, new UserImportService.ResultSink() {
+                        @Override
+                        public void created(long line, User user) throws IOException {
+                            out.writeStartObject();
+                            out.writeNumberField("line", line);
+                            out.writeNumberField("id", user.getId());
+                            out.writeStringField("username", user.getUsername());
+                            out.writeEndObject();
+                            out.writeRaw('\n');
+                        }
+
+                        @Override
+                        public void failed(long line, String error) throws IOException {
+                            out.writeStartObject();
+                            out.writeNumberField("line", line);
+                            out.writeStringField("error", error);
+                            out.writeEndObject();
+                            out.writeRaw('\n');
+                        }
+
+                        @Override
+                        public void chunkDone() throws IOException {
+                            out.flush();
+                        }
+                    });
+            
+            out.writeStartObject();
+            out.writeStringField("operation", "BULK_IMPORT_USERS");
+            out.writeStringField("routing", UserResponses.ROUTING_MASTER);
+            out.writeNumberField("lines", summary.lines());
+            out.writeNumberField("created", summary.created());
+            out.writeNumberField("failed", summary.failed());
+            out.writeNumberField("chunks", summary.chunks());
+            out.writeNumberField("chunk_size", chunk);
+            out.writeNumberField("elapsed_ms", summary.elapsedMs());
+            out.writeStringField("timestamp", IsoTimestamps.now());
+            out.writeEndObject();
+            out.writeRaw('\n');
+        }
+    }
+
+    /**
+     * 流式导出全部用户 - ShardingSphere自动路由到从库
+     * 通过MyBatis Cursor逐行读取并直接写入响应输出流(NDJSON或CSV)，堆内存占用恒定；
+     * 客户端读取慢时写操作阻塞，天然形成背压。行数和字节数在日志和HTTP trailer中给出
+     */
+    @GetMapping("/users/export")
+    public void exportUsers(@RequestParam(defaultValue = "ndjson") String format,
+                            HttpServletResponse response) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=users." + (csv ? "csv" : "ndjson"));
+        response.setHeader("Trailer", "X-Export-Rows, X-Export-Bytes");
         
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "INSERT_USER");
-        result.put("routing", "ShardingSphere自动路由到主库");
-        result.put("user", user);
-        result.put("timestamp", new Date().toString());
+        CountingOutputStream counting = new CountingOutputStream(response.getOutputStream());
+        AtomicLong exportedRows = new AtomicLong();
+        // trailer必须在响应提交前注册，取值在响应结束时才计算
+        response.setTrailerFields(() -> Map.of(
+                "X-Export-Rows", String.valueOf(exportedRows.get()),
+                "X-Export-Bytes", String.valueOf(counting.getCount())));
         
-        System.out.println("========== 创建用户操作结束 ==========\n");
-        return result;
+        Writer out = new BufferedWriter(new OutputStreamWriter(counting, StandardCharsets.UTF_8), 64 * 1024);
+        UserExportService.RowWriter writer = csv ? csvRowWriter(out, counting) : ndjsonRowWriter(out, counting);
+        
+        UserExportService.ExportSummary summary = userExportService.exportUsers(writer);
+        out.flush();
+        exportedRows.set(summary.rows());
+    }
+
+    private UserExportService.RowWriter ndjsonRowWriter(Writer out, CountingOutputStream counting) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.setRootValueSeparator(null);
+        // 由外层统一刷出/关闭，避免逐行flush
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        return new UserExportService.RowWriter() {
+            @Override
+            public void write(User user) throws IOException {
+                generator.writeStartObject();
+                generator.writeNumberField("id", user.getId());
+                generator.writeStringField("username", user.getUsername());
+                generator.writeStringField("email", user.getEmail());
+                if (user.getAge() != null) {
+                    generator.writeNumberField("age", user.getAge());
+                }
+                if (user.getStatus() != null) {
+                    generator.writeNumberField("status", user.getStatus());
+                }
+                generator.writeStringField("created_at", Objects.toString(user.getCreatedAt(), null));
+                generator.writeStringField("updated_at", Objects.toString(user.getUpdatedAt(), null));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                generator.flush();
+            }
+
+            @Override
+            public long bytesWritten() {
+                return counting.getCount();
+            }
+        };
+    }
+
+    private UserExportService.RowWriter csvRowWriter(Writer out, CountingOutputStream counting) throws IOException {
+        out.write("id,username,email,age,status,created_at,updated_at\n");
+        return new UserExportService.RowWriter() {
+            @Override
+            public void write(User user) throws IOException {
+                out.write(String.valueOf(user.getId()));
+                out.write(',');
+                out.write(csvField(user.getUsername()));
+                out.write(',');
+                out.write(csvField(user.getEmail()));
+                out.write(',');
+                out.write(Objects.toString(user.getAge(), ""));
+                out.write(',');
+                out.write(Objects.toString(user.getStatus(), ""));
+                out.write(',');
+                out.write(Objects.toString(user.getCreatedAt(), ""));
+                out.write(',');
+                out.write(Objects.toString(user.getUpdatedAt(), ""));
+                out.write('\n');
+            }
+
+            @Override
+            public long bytesWritten() {
+                return counting.getCount();
+            }
+        };
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * 统计实际写出字节数的输出流
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
     }
 
     /**
      * 更新用户 - ShardingSphere自动路由到主库
      */
     @PutMapping("/users/{id}")
-    public Map<String, Object> updateUser(
+    public CompletableFuture<UserResponses.UserUpdated> updateUser(
             @PathVariable Long id,
             @RequestParam String username,
             @RequestParam String email,
             @RequestParam Integer age) {
-        System.out.println("\n========== 更新用户操作开始 ==========");
-        
-        User user = userService.updateUser(id, username, email, age);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "UPDATE_USER");
-        result.put("routing", "ShardingSphere自动路由到主库");
-        result.put("user_id", id);
-        result.put("user", user);
-        result.put("timestamp", new Date().toString());
-        
-        System.out.println("========== 更新用户操作结束 ==========\n");
-        return result;
+        return bulkheads.write(() -> {
+            User user = userService.updateUser(id, username, email, age);
+            return new UserResponses.UserUpdated("UPDATE_USER", UserResponses.ROUTING_MASTER, id, user, IsoTimestamps.now());
+        });
     }
 
     /**
      * 删除用户 - ShardingSphere自动路由到主库
      */
     @DeleteMapping("/users/{id}")
-    public Map<String, Object> deleteUser(@PathVariable Long id) {
-        System.out.println("\n========== 删除用户操作开始 ==========");
-        
-        int rows = userService.deleteUser(id);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "DELETE_USER");
-        result.put("routing", "ShardingSphere自动路由到主库");
-        result.put("user_id", id);
-        result.put("affected_rows", rows);
-        result.put("deleted", rows > 0);
-        result.put("timestamp", new Date().toString());
-        
-        System.out.println("========== 删除用户操作结束 ==========\n");
-        return result;
+    public CompletableFuture<UserResponses.UserDeleted> deleteUser(@PathVariable Long id) {
+        return bulkheads.write(() -> {
+            int rows = userService.deleteUser(id);
+            return new UserResponses.UserDeleted("DELETE_USER", UserResponses.ROUTING_MASTER,
+                    id, rows, rows > 0, IsoTimestamps.now());
+        });
     }
 
     /**
      * 强制主库查询 - 使用HintManager强制路由到主库
      */
     @GetMapping("/users/{id}/auth")
-    public Map<String, Object> getUserAuthFromMaster(@PathVariable Long id) {
-        System.out.println("\n========== 强制主库认证查询开始 ==========");
-        
-        User user;
-        try (HintManager hintManager = HintManager.getInstance()) {
-            // 强制使用主库
-            hintManager.setWriteRouteOnly();
-            user = userService.findUserById(id);
-        }
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "AUTH_SELECT_FROM_MASTER");
-        result.put("routing", "HintManager强制路由到主库");
-        result.put("user_id", id);
-        result.put("user", user);
-        result.put("note", "强制使用主库进行认证查询，保证数据实时性");
-        result.put("timestamp", new Date().toString());
-        
-        System.out.println("========== 强制主库认证查询结束 ==========\n");
-        return result;
+    public CompletableFuture<UserResponses.UserAuth> getUserAuthFromMaster(@PathVariable Long id) {
+        // HintManager是线程本地的，必须在执行查询的舱壁线程上设置
+        return bulkheads.write(() -> {
+            User user;
+            try (HintManager hintManager = HintManager.getInstance()) {
+                // 强制使用主库
+                hintManager.setWriteRouteOnly();
+                user = userService.findUserById(id);
+            }
+            
+            return new UserResponses.UserAuth("AUTH_SELECT_FROM_MASTER", UserResponses.ROUTING_HINT_MASTER,
+                    id, user, AUTH_NOTE, IsoTimestamps.now());
+        });
     }
 
     /**
-     * 统计用户总数 - ShardingSphere自动路由到从库
+     * 统计用户总数 - 读取进程内增量聚合，不访问数据库
      */
     @GetMapping("/users/count")
-    public Map<String, Object> countUsers() {
-        System.out.println("\n========== 统计用户总数开始 ==========");
-        
+    public UserResponses.UserCount countUsers() {
         int count = userService.countUsers();
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "COUNT_USERS");
-        result.put("routing", "ShardingSphere自动路由到从库");
-        result.put("total_users", count);
-        result.put("timestamp", new Date().toString());
-        
-        System.out.println("========== 统计用户总数结束 ==========\n");
-        return result;
+        return new UserResponses.UserCount("COUNT_USERS", UserResponses.ROUTING_AGGREGATES, count, IsoTimestamps.now());
+    }
+
+    /**
+     * 用户统计 - 进程内增量聚合：总数、各状态人数、年龄分布，以及与数据库校准的偏差
+     */
+    @GetMapping("/users/stats")
+    public UserResponses.UserStats getUserStats() {
+        return new UserResponses.UserStats("USER_STATS", userService.getUserStats(), IsoTimestamps.now());
     }
 
     /**
      * 根据用户名查询用户 - ShardingSphere自动路由到从库
      */
     @GetMapping("/users/search")
-    public Map<String, Object> searchUserByUsername(@RequestParam String username) {
-        System.out.println("\n========== 根据用户名搜索用户开始 ==========");
-        
-        User user = userService.findUserByUsername(username);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "SEARCH_USER_BY_USERNAME");
-        result.put("routing", "ShardingSphere自动路由到从库");
-        result.put("username", username);
-        result.put("user", user);
-        result.put("found", user != null);
-        result.put("timestamp", new Date().toString());
-        
-        System.out.println("========== 根据用户名搜索用户结束 ==========\n");
-        return result;
+    public CompletableFuture<UserResponses.UserSearch> searchUserByUsername(@RequestParam String username) {
+        return bulkheads.read(() -> {
+            User user = userService.findUserByUsername(username);
+            return new UserResponses.UserSearch("SEARCH_USER_BY_USERNAME", UserResponses.ROUTING_SLAVE,
+                    username, user, user != null, IsoTimestamps.now());
+        });
+    }
+
+    /**
+     * 用户名前缀联想 - 命中进程内用户名前缀索引，不访问数据库，在请求线程上直接返回；索引未就绪时回源从库
+     */
+    @GetMapping("/users/suggest")
+    public UserResponses.UserSuggestions suggestUsernames(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        if (prefix.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "prefix不能为空");
+        }
+        int k = limit == null || limit <= 0 ? 10 : Math.min(limit, MAX_SUGGESTIONS);
+        List<UsernameIndex.Match> suggestions = userService.suggestUsernames(prefix, k);
+        return new UserResponses.UserSuggestions("SUGGEST_USERNAMES", UserResponses.ROUTING_USERNAME_INDEX,
+                prefix, suggestions, suggestions.size(), IsoTimestamps.now());
     }
 
     /**
-     * 应用状态检查
+     * 从库状态 - 各读库的EWMA延迟、在途查询数、复制延迟和是否参与读负载均衡
      */
-    @GetMapping("/status")
-    public Map<String, Object> getStatus() {
-        Map<String, Object> result = new HashMap<>();
+    @GetMapping("/replicas")
+    public UserResponses.Replicas getReplicas() {
+        ReplicaHealthRegistry health = ReplicaHealthRegistry.getInstance();
+        return new UserResponses.Replicas("REPLICA_STATUS", "LATENCY_AWARE",
+                ReplicaLoadTracker.getInstance().snapshot(),
+                health.snapshot(),
+                replicationLagMonitor.getMaxLagSeconds(),
+                replicationLagMonitor.getRecoverLagSeconds(),
+                health.getMasterFallbacks(),
+                DataSourcePermits.getInstance().snapshot(),
+                bulkheads.stats(),
+                new UserResponses.ReadYourWrites(readYourWritesInterceptor.isEnabled(),
+                        readYourWritesInterceptor.getWindowMs(), readYourWritesInterceptor.getPinnedRequests()),
+                IsoTimestamps.now());
+    }
+
+    /**
+     * 应用状态检查 - 内容在启动后不再变化，启动时序列化一次，之后直接输出字节
+     * 读己之写的运行时统计见 /api/replicas
+     */
+    @GetMapping(value = "/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getStatus() {
+        return statusPayload;
+    }
+
+    @PostConstruct
+    public void initStatusPayload() throws JsonProcessingException {
+        Map<String, Object> result = new LinkedHashMap<>();
         result.put("application", "SpringBoot + ShardingSphere 读写分离演示");
         result.put("version", "2.0-MySQL");
         result.put("database", "MySQL 8.0 (主从复制)");
         result.put("sharding_sphere", "5.4.1");
-        result.put("features", Arrays.asList("读写分离", "@DS注解混合", "强制主库查询"));
+        result.put("features", Arrays.asList("读写分离", "@DS注解混合", "强制主库查询", "读己之写"));
         result.put("status", "运行中");
-        result.put("timestamp", new Date().toString());
-        return result;
+        result.put("started_at", IsoTimestamps.now());
+        statusPayload = objectMapper.writeValueAsBytes(result);
     }
 }
\ No newline at end of file
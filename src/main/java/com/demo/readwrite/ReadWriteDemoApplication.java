@@ -2,8 +2,10 @@ package com.demo.readwrite;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ReadWriteDemoApplication {
     public static void main(String[] args) {
         SpringApplication.run(ReadWriteDemoApplication.class, args);
@@ -0,0 +1,75 @@
+package com.demo.readwrite.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 已完成的CompletableFuture直接按结果写响应
+ *
+ * 舱壁关闭时接口在请求线程上执行完才返回，future已经完成；Spring MVC仍会为它开启Servlet异步处理，
+ * 再分派一次请求写结果。这里直接取出结果，交给原有的处理器按普通返回值写出，省去异步分派。
+ * 未完成或异常结束的future仍走原有的异步处理
+ */
+public class CompletedFutureReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+    private final HandlerMethodReturnValueHandler delegate;
+
+    public CompletedFutureReturnValueHandler(HandlerMethodReturnValueHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        return CompletableFuture.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType,
+                                  ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+        if (returnValue instanceof CompletableFuture<?> future && future.isDone()
+                && !future.isCompletedExceptionally()) {
+            delegate.handleReturnValue(future.join(), new ResultParameter(returnType), mavContainer, webRequest);
+            return;
+        }
+        delegate.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+    }
+
+    /**
+     * 把 CompletableFuture<T> 的返回值声明换成 T，方法注解和所在类不变
+     */
+    private static final class ResultParameter extends MethodParameter {
+
+        private final ResolvableType resultType;
+
+        ResultParameter(MethodParameter original) {
+            super(original);
+            this.resultType = ResolvableType.forMethodParameter(original).getGeneric();
+        }
+
+        private ResultParameter(ResultParameter original) {
+            super(original);
+            this.resultType = original.resultType;
+        }
+
+        @Override
+        public Class<?> getParameterType() {
+            return resultType.toClass();
+        }
+
+        @Override
+        public Type getGenericParameterType() {
+            return resultType.getType();
+        }
+
+        @Override
+        public ResultParameter clone() {
+            return new ResultParameter(this);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.demo.readwrite.config;
+
+import com.demo.readwrite.routing.AdaptiveConcurrencyLimiter;
+import com.demo.readwrite.routing.ReadYourWritesInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandlerComposite;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Web配置 - 注册请求拦截器；舱壁关闭时已完成的CompletableFuture不走异步分派
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ReadYourWritesInterceptor readYourWritesInterceptor;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(readYourWritesInterceptor).addPathPatterns("/api/**", "/mixed/**");
+        // 在读己之写之后：固定读主库的请求按写路径计数；流式导入导出和只读进程内数据的接口不限制
+        registry.addInterceptor(concurrencyLimiter)
+                .addPathPatterns("/api/users", "/api/users/**", "/mixed/users", "/mixed/config", "/mixed/config/**")
+                .excludePathPatterns("/api/users/import", "/api/users/export", "/api/users/count", "/api/users/stats",
+                        "/api/users/suggest");
+    }
+
+    /**
+     * 舱壁关闭时接口返回的future都已完成，放在所有返回值处理器之前直接写结果。
+     * 自定义返回值处理器默认排在内置处理器之后，轮不到处理CompletableFuture，只能在适配器初始化后插到最前面
+     */
+    @Bean
+    @ConditionalOnProperty(name = "demo.bulkhead.enabled", havingValue = "false", matchIfMissing = true)
+    public WebMvcRegistrations completedFutureRegistrations() {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                return new RequestMappingHandlerAdapter() {
+                    @Override
+                    public void afterPropertiesSet() {
+                        super.afterPropertiesSet();
+                        List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>(getReturnValueHandlers());
+                        HandlerMethodReturnValueHandlerComposite delegate =
+                                new HandlerMethodReturnValueHandlerComposite().addHandlers(handlers);
+                        handlers.add(0, new CompletedFutureReturnValueHandler(delegate));
+                        setReturnValueHandlers(handlers);
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,190 @@
+package com.demo.readwrite.controller;
+
+import com.demo.readwrite.dto.DiagnosticsResponses;
+import com.demo.readwrite.dto.IsoTimestamps;
+import com.demo.readwrite.routing.AdaptiveConcurrencyLimiter;
+import com.demo.readwrite.routing.DataSourceBulkheads;
+import com.demo.readwrite.service.UserBatchLoader;
+import com.demo.readwrite.service.UserCache;
+import com.demo.readwrite.service.UserWriteBehind;
+import com.demo.readwrite.service.UsernameIndex;
+import com.demo.readwrite.startup.StartupTimeline;
+import com.demo.readwrite.trace.RoutingTracer;
+import com.demo.readwrite.trace.SlowQueryLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 诊断控制器 - 运行时查看和调整诊断功能
+ */
+@RestController
+@RequestMapping("/diagnostics")
+public class DiagnosticsController {
+
+    @Autowired
+    private RoutingTracer routingTracer;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserBatchLoader userBatchLoader;
+
+    @Autowired
+    private StartupTimeline startupTimeline;
+
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+
+    @Autowired
+    private UserWriteBehind userWriteBehind;
+
+    @Autowired
+    private DataSourceBulkheads bulkheads;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private UsernameIndex usernameIndex;
+
+    /**
+     * 路由追踪状态 - 开关、采样率、已记录条数
+     */
+    @GetMapping("/trace")
+    public DiagnosticsResponses.Trace getTrace() {
+        return new DiagnosticsResponses.Trace("ROUTING_TRACE_STATUS", routingTracer.stats(), IsoTimestamps.now());
+    }
+
+    /**
+     * 调整路由追踪 - 不带operation时调整默认采样率，带operation时只调整该操作
+     */
+    @PutMapping("/trace")
+    public DiagnosticsResponses.Trace updateTrace(
+            @RequestParam(required = false) Boolean enabled,
+            @RequestParam(required = false) Double sampleRate,
+            @RequestParam(required = false) String operation) {
+        if (enabled != null) {
+            routingTracer.setEnabled(enabled);
+        }
+        if (sampleRate != null) {
+            routingTracer.setSampleRate(operation, sampleRate);
+        }
+
+        return new DiagnosticsResponses.Trace("UPDATE_ROUTING_TRACE", routingTracer.stats(), IsoTimestamps.now());
+    }
+
+    /**
+     * 用户缓存状态 - 命中率、加载耗时、淘汰次数，以及未命中时合并查询的批次统计
+     */
+    @GetMapping("/user-cache")
+    public DiagnosticsResponses.UserCacheStatus getUserCache() {
+        return new DiagnosticsResponses.UserCacheStatus("USER_CACHE_STATUS", userCache.stats(), userBatchLoader.stats(),
+                IsoTimestamps.now());
+    }
+
+    /**
+     * 启动时间线 - 上下文刷新、启动预热、就绪各自距JVM启动的毫秒数，以及是否启用了AOT和AppCDS
+     */
+    @GetMapping("/startup")
+    public DiagnosticsResponses.Startup getStartup() {
+        return new DiagnosticsResponses.Startup("STARTUP_TIMELINE", startupTimeline.stats(), IsoTimestamps.now());
+    }
+
+    /**
+     * 慢SQL - 最近的慢查询(新的在前)和按累计耗时排序的指纹Top N
+     */
+    @GetMapping("/slow-queries")
+    public DiagnosticsResponses.SlowQueries getSlowQueries(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) Integer top) {
+        return new DiagnosticsResponses.SlowQueries("SLOW_QUERY_STATUS", slowQueryLog.stats(),
+                slowQueryLog.top(top != null ? top : slowQueryLog.getTopN()),
+                slowQueryLog.recent(limit).stream().map(SlowQueryLog.SlowQuery::toMap).toList(),
+                IsoTimestamps.now());
+    }
+
+    /**
+     * 调整慢SQL捕获 - 开关和阈值(毫秒)
+     */
+    @PutMapping("/slow-queries")
+    public DiagnosticsResponses.SlowQueryStatus updateSlowQueries(
+            @RequestParam(required = false) Boolean enabled,
+            @RequestParam(required = false) Long thresholdMs) {
+        if (enabled != null) {
+            slowQueryLog.setEnabled(enabled);
+        }
+        if (thresholdMs != null) {
+            slowQueryLog.setThresholdMs(thresholdMs);
+        }
+
+        return new DiagnosticsResponses.SlowQueryStatus("UPDATE_SLOW_QUERY", slowQueryLog.stats(), IsoTimestamps.now());
+    }
+
+    /**
+     * 清空慢SQL记录和指纹汇总
+     */
+    @DeleteMapping("/slow-queries")
+    public DiagnosticsResponses.SlowQueryStatus clearSlowQueries() {
+        slowQueryLog.clear();
+
+        return new DiagnosticsResponses.SlowQueryStatus("CLEAR_SLOW_QUERY", slowQueryLog.stats(), IsoTimestamps.now());
+    }
+
+    /**
+     * 延迟写入状态 - 待写数量、合并比例、批次统计
+     */
+    @GetMapping("/write-behind")
+    public DiagnosticsResponses.WriteBehind getWriteBehind() {
+        return new DiagnosticsResponses.WriteBehind("WRITE_BEHIND_STATUS", userWriteBehind.stats(),
+                IsoTimestamps.now());
+    }
+
+    /**
+     * 立即写入全部待写更新
+     */
+    @PostMapping("/write-behind/flush")
+    public DiagnosticsResponses.WriteBehindFlushed flushWriteBehind() {
+        int rows = userWriteBehind.isEnabled() ? userWriteBehind.flush() : 0;
+
+        return new DiagnosticsResponses.WriteBehindFlushed("FLUSH_WRITE_BEHIND", rows, userWriteBehind.stats(),
+                IsoTimestamps.now());
+    }
+
+    /**
+     * 数据源舱壁状态 - 各舱壁的线程、排队、拒绝和超时次数
+     */
+    @GetMapping("/bulkheads")
+    public DiagnosticsResponses.Bulkheads getBulkheads() {
+        return new DiagnosticsResponses.Bulkheads("BULKHEAD_STATUS", bulkheads.stats(), IsoTimestamps.now());
+    }
+
+    /**
+     * 自适应并发限制状态 - 各路径的当前上限、在途请求、拒绝次数和延迟梯度
+     */
+    @GetMapping("/concurrency-limits")
+    public DiagnosticsResponses.ConcurrencyLimits getConcurrencyLimits() {
+        return new DiagnosticsResponses.ConcurrencyLimits("CONCURRENCY_LIMIT_STATUS", concurrencyLimiter.stats(),
+                IsoTimestamps.now());
+    }
+
+    /**
+     * 用户名前缀索引状态 - 基础层条目数和内存占用、增量层大小、合并和重建统计
+     */
+    @GetMapping("/username-index")
+    public DiagnosticsResponses.UsernameIndexStatus getUsernameIndex() {
+        return new DiagnosticsResponses.UsernameIndexStatus("USERNAME_INDEX_STATUS", usernameIndex.stats(),
+                IsoTimestamps.now());
+    }
+
+    /**
+     * 立即从从库重建用户名前缀索引
+     */
+    @PostMapping("/username-index/rebuild")
+    public DiagnosticsResponses.UsernameIndexStatus rebuildUsernameIndex() {
+        usernameIndex.rebuild();
+
+        return new DiagnosticsResponses.UsernameIndexStatus("REBUILD_USERNAME_INDEX", usernameIndex.stats(),
+                IsoTimestamps.now());
+    }
+}
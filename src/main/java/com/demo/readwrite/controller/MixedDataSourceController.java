@@ -1,12 +1,23 @@
 package com.demo.readwrite.controller;
 
+import com.demo.readwrite.dto.EntityTags;
+import com.demo.readwrite.dto.IsoTimestamps;
+import com.demo.readwrite.dto.MixedResponses;
 import com.demo.readwrite.entity.SystemConfig;
 import com.demo.readwrite.entity.User;
+import com.demo.readwrite.routing.DataSourceBulkheads;
 import com.demo.readwrite.service.UserService;
 import com.demo.readwrite.service.ConfigService; 
+import com.demo.readwrite.service.ConfigSnapshotCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 混合数据源演示控制器
@@ -14,6 +25,9 @@ import java.util.*;
  * 功能：
  * 1. 默认业务：自动读写分离 (master/slave) - ShardingSphere管理
  * 2. @DS("config")：配置库，单库操作 - Baomidou动态数据源管理
+ *
+ * 访问数据库的接口返回CompletableFuture，开启 demo.bulkhead.enabled 后用户接口和配置接口分别在
+ * 主库/从库舱壁和配置库舱壁中执行，配置库变慢不会占用用户接口的线程
  */
 @RestController
 @RequestMapping("/mixed")
@@ -25,176 +39,148 @@ public class MixedDataSourceController {
     @Autowired  
     private ConfigService configService;
 
+    @Autowired
+    private ConfigSnapshotCache configSnapshotCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSourceBulkheads bulkheads;
+
+    private byte[] statusPayload;
+
     /**
      * 测试主业务库读写分离 - 查询用户
      */
     @GetMapping("/users")
-    public Map<String, Object> getUsers() {
-        System.out.println("\n========== 主业务库查询 (应该走SLAVE) ==========");
-        
-        List<User> users = userService.findAllUsers();
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "主业务库查询");
-        result.put("expected_datasource", "SLAVE (localhost:3307)");
-        result.put("users", users);
-        result.put("count", users.size());
-        result.put("note", "ShardingSphere自动读写分离");
-        
-        System.out.println("========== 主业务库查询结束 ==========\n");
-        return result;
+    public CompletableFuture<MixedResponses.Users> getUsers() {
+        return bulkheads.read(() -> {
+            List<User> users = userService.findAllUsers();
+            return new MixedResponses.Users("主业务库查询", "SLAVE (localhost:3307)",
+                    users, users.size(), "ShardingSphere自动读写分离");
+        });
     }
     
     /**
      * 测试主业务库读写分离 - 创建用户
      */
     @PostMapping("/users")
-    public Map<String, Object> createUser(
+    public CompletableFuture<MixedResponses.UserCreated> createUser(
             @RequestParam String username, 
             @RequestParam String email,
             @RequestParam(defaultValue = "25") Integer age) {
-        System.out.println("\n========== 主业务库写入 (应该走MASTER) ==========");
-        
-        User user = userService.createUser(username, email, age);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "主业务库写入");
-        result.put("expected_datasource", "MASTER (localhost:3306)");
-        result.put("user", user);
-        result.put("note", "ShardingSphere自动路由到主库，数据会同步到从库");
-        
-        System.out.println("========== 主业务库写入结束 ==========\n");
-        return result;
+        return bulkheads.write(() -> {
+            User user = userService.createUser(username, email, age);
+            return new MixedResponses.UserCreated("主业务库写入", "MASTER (localhost:3306)",
+                    user, "ShardingSphere自动路由到主库，数据会同步到从库");
+        });
     }
     
     /**
      * 测试@DS配置库 - 查询所有配置
+     * ETag由整张表的行数、最大updated_at和各行内容计算，轮询的客户端在配置未变时收到304
      */
     @GetMapping("/config")
-    public Map<String, Object> getAllConfigs() {
-        System.out.println("\n========== 配置库查询 @DS(\"config\") ==========");
-        
-        List<SystemConfig> configs = configService.getAllConfigs();
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "配置库查询所有配置");
-        result.put("datasource", "@DS(\"config\") - localhost:3308");
-        result.put("configs", configs);
-        result.put("count", configs.size());
-        result.put("note", "不进行读写分离，直接使用指定库");
-        
-        System.out.println("========== 配置库操作结束 ==========\n");
-        return result;
+    public CompletableFuture<ResponseEntity<MixedResponses.Configs>> getAllConfigs() {
+        return bulkheads.config(() -> {
+            List<SystemConfig> configs = configService.getAllConfigs();
+            // 列表的最大updated_at感知不到删除，不发送Last-Modified
+            return EntityTags.ok(EntityTags.ofConfigs(configs), null,
+                    new MixedResponses.Configs("配置库查询所有配置", MixedResponses.CONFIG_DATASOURCE,
+                            configs, configs.size(), "不进行读写分离，直接使用指定库"));
+        });
     }
     
     /**
-     * 根据配置键查询配置
+     * 根据配置键查询配置 - 带ETag/Last-Modified，未变化时返回304
      */
     @GetMapping("/config/{key}")
-    public Map<String, Object> getConfigByKey(@PathVariable String key) {
-        System.out.println("\n========== 配置库查询单个配置 @DS(\"config\") ==========");
-        
-        SystemConfig config = configService.getConfigByKey(key);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "配置库查询单个配置");
-        result.put("key", key);
-        result.put("config", config);
-        result.put("found", config != null);
-        result.put("datasource", "@DS(\"config\") - localhost:3308");
-        
-        System.out.println("========== 配置库操作结束 ==========\n");
-        return result;
+    public CompletableFuture<ResponseEntity<MixedResponses.ConfigByKey>> getConfigByKey(@PathVariable String key) {
+        return bulkheads.config(() -> {
+            SystemConfig config = configService.getConfigByKey(key);
+            MixedResponses.ConfigByKey body = new MixedResponses.ConfigByKey("配置库查询单个配置", key, config, config != null,
+                    MixedResponses.CONFIG_DATASOURCE);
+            return config != null ? EntityTags.ok(EntityTags.of(config), config.getUpdatedAt(), body) : ResponseEntity.ok(body);
+        });
     }
     
     /**
-     * 根据ID查询配置
+     * 根据ID查询配置 - 带ETag/Last-Modified，未变化时返回304
      */
     @GetMapping("/config/id/{id}")
-    public Map<String, Object> getConfigById(@PathVariable Long id) {
-        System.out.println("\n========== 配置库根据ID查询 @DS(\"config\") ==========");
-        
-        SystemConfig config = configService.getConfigById(id);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "配置库根据ID查询");
-        result.put("id", id);
-        result.put("config", config);
-        result.put("found", config != null);
-        result.put("datasource", "@DS(\"config\") - localhost:3308");
-        
-        System.out.println("========== 配置库操作结束 ==========\n");
-        return result;
+    public CompletableFuture<ResponseEntity<MixedResponses.ConfigById>> getConfigById(@PathVariable Long id) {
+        return bulkheads.config(() -> {
+            SystemConfig config = configService.getConfigById(id);
+            MixedResponses.ConfigById body = new MixedResponses.ConfigById("配置库根据ID查询", id, config, config != null,
+                    MixedResponses.CONFIG_DATASOURCE);
+            return config != null ? EntityTags.ok(EntityTags.of(config), config.getUpdatedAt(), body) : ResponseEntity.ok(body);
+        });
     }
     
     /**
      * 创建新配置
      */
     @PostMapping("/config")
-    public Map<String, Object> createConfig(
+    public CompletableFuture<MixedResponses.ConfigMutation> createConfig(
             @RequestParam String key, 
             @RequestParam String value,
             @RequestParam(required = false) String description) {
-        System.out.println("\n========== 配置库创建 @DS(\"config\") ==========");
-        
-        Map<String, Object> result = configService.createConfig(key, value, description != null ? description : "");
-        result.put("note", "配置库单库操作，不使用读写分离");
-        
-        System.out.println("========== 配置库操作结束 ==========\n");
-        return result;
+        return bulkheads.config(() -> configService.createConfig(key, value, description != null ? description : "")
+                .withNote("配置库单库操作，不使用读写分离"));
     }
     
     /**
      * 更新配置
      */
     @PutMapping("/config/{key}")
-    public Map<String, Object> updateConfig(
+    public CompletableFuture<MixedResponses.ConfigMutation> updateConfig(
             @PathVariable String key, 
             @RequestParam String value,
             @RequestParam(required = false) String description) {
-        System.out.println("\n========== 配置库更新 @DS(\"config\") ==========");
-        
-        Map<String, Object> result = configService.updateConfig(key, value, description != null ? description : "");
-        result.put("note", "配置库单库操作，不使用读写分离");
-        
-        System.out.println("========== 配置库操作结束 ==========\n");
-        return result;
+        return bulkheads.config(() -> configService.updateConfig(key, value, description != null ? description : "")
+                .withNote("配置库单库操作，不使用读写分离"));
     }
     
     /**
      * 删除配置
      */
     @DeleteMapping("/config/{id}")
-    public Map<String, Object> deleteConfig(@PathVariable Long id) {
-        System.out.println("\n========== 配置库删除 @DS(\"config\") ==========");
-        
-        Map<String, Object> result = configService.deleteConfig(id);
-        result.put("note", "配置库单库操作，物理删除");
-        
-        System.out.println("========== 配置库操作结束 ==========\n");
-        return result;
+    public CompletableFuture<MixedResponses.ConfigMutation> deleteConfig(@PathVariable Long id) {
+        return bulkheads.config(() -> configService.deleteConfig(id).withNote("配置库单库操作，物理删除"));
+    }
+    
+    /**
+     * 配置快照状态 - 刷新间隔、陈旧度、刷新统计
+     */
+    @GetMapping("/config-snapshot")
+    public MixedResponses.ConfigSnapshot getConfigSnapshot() {
+        return new MixedResponses.ConfigSnapshot("配置快照状态", configSnapshotCache.stats(),
+                "配置读操作命中进程内快照，后台按updated_at增量刷新");
     }
     
     /**
      * 测试数据同步验证
      */
     @GetMapping("/sync-test") 
-    public Map<String, Object> testSync() {
-        Map<String, Object> result = new HashMap<>();
-        
+    public MixedResponses.SyncTest testSync() {
         // 统计用户数量
         int userCount = userService.countUsers();
-        
-        result.put("user_count", userCount);
-        result.put("note", "主库写入，从库读取，验证主从同步");
-        result.put("suggestion", "先通过POST /mixed/users创建一些用户，然后查询验证同步");
-        
-        return result;
+        return new MixedResponses.SyncTest(userCount, "主库写入，从库读取，验证主从同步",
+                "先通过POST /mixed/users创建一些用户，然后查询验证同步");
     }
     
-    @GetMapping("/status")
-    public Map<String, Object> getStatus() {
-        Map<String, Object> result = new HashMap<>();
+    /**
+     * 架构说明 - 内容固定，启动时序列化一次
+     */
+    @GetMapping(value = "/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getStatus() {
+        return statusPayload;
+    }
+
+    @PostConstruct
+    public void initStatusPayload() throws JsonProcessingException {
+        Map<String, Object> result = new LinkedHashMap<>();
         result.put("architecture", "多数据源 + 读写分离混合 - MySQL版本");
         result.put("datasources", Map.of(
             "主业务库", "master(3306) + slave(3307) - ShardingSphere读写分离",
@@ -209,10 +195,11 @@ public class MixedDataSourceController {
             "POST /mixed/config - @DS配置库创建配置",
             "PUT /mixed/config/{key} - @DS配置库更新配置",
             "DELETE /mixed/config/{id} - @DS配置库删除配置",
+            "GET /mixed/config-snapshot - 配置快照状态",
             "GET /mixed/sync-test - 主从同步测试"
         ));
         result.put("version", "2.0-MySQL");
-        result.put("timestamp", new Date().toString());
-        return result;
+        result.put("started_at", IsoTimestamps.now());
+        statusPayload = objectMapper.writeValueAsBytes(result);
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.demo.readwrite.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 诊断接口响应 - 不可变record，各组件的统计仍是各自的有序Map
+ */
+public final class DiagnosticsResponses {
+
+    private DiagnosticsResponses() {
+    }
+
+    public record Trace(String operation, Map<String, Object> trace, String timestamp) {
+    }
+
+    public record UserCacheStatus(String operation, Map<String, Object> cache,
+                                  @JsonProperty("batch_loader") Map<String, Object> batchLoader,
+                                  String timestamp) {
+    }
+
+    public record Startup(String operation, Map<String, Object> startup, String timestamp) {
+    }
+
+    public record SlowQueries(String operation,
+                              @JsonProperty("slow_queries") Map<String, Object> slowQueries,
+                              List<Map<String, Object>> top,
+                              List<Map<String, Object>> recent,
+                              String timestamp) {
+    }
+
+    public record SlowQueryStatus(String operation,
+                                  @JsonProperty("slow_queries") Map<String, Object> slowQueries,
+                                  String timestamp) {
+    }
+
+    public record WriteBehind(String operation,
+                              @JsonProperty("write_behind") Map<String, Object> writeBehind,
+                              String timestamp) {
+    }
+
+    public record WriteBehindFlushed(String operation, int flushed,
+                                     @JsonProperty("write_behind") Map<String, Object> writeBehind,
+                                     String timestamp) {
+    }
+
+    public record Bulkheads(String operation, Map<String, Object> bulkhead, String timestamp) {
+    }
+
+    public record ConcurrencyLimits(String operation,
+                                    @JsonProperty("concurrency_limit") Map<String, Object> concurrencyLimit,
+                                    String timestamp) {
+    }
+
+    public record UsernameIndexStatus(String operation,
+                                      @JsonProperty("username_index") Map<String, Object> usernameIndex,
+                                      String timestamp) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.demo.readwrite.dto;
+
+import com.demo.readwrite.entity.SystemConfig;
+import com.demo.readwrite.entity.User;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * 条件GET - 由updated_at和行内容计算弱ETag，配合Last-Modified返回
+ *
+ * updated_at 只精确到秒，同一秒内的两次修改无法区分，ETag中另含可变列的64位FNV-1a哈希；
+ * 列表的ETag由行数、最大updated_at和各行哈希组合而成，删除行也会改变ETag。
+ * 响应体中有按秒变化的timestamp字段，因此使用弱ETag。
+ *
+ * 返回ResponseEntity后，请求的If-None-Match / If-Modified-Since与之匹配时，
+ * Spring MVC直接返回304，不序列化响应体。Cache-Control: no-cache 要求客户端每次带条件重新验证。
+ */
+public final class EntityTags {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private EntityTags() {
+    }
+
+    public static String of(User user) {
+        return tag("u" + user.getId(), user.getUpdatedAt(), hash(user));
+    }
+
+    public static String of(SystemConfig config) {
+        return tag("c" + config.getId(), config.getUpdatedAt(), hash(config));
+    }
+
+    /**
+     * 配置列表 - 按列表顺序组合各行哈希，行数和最大updated_at放在明文部分
+     */
+    public static String ofConfigs(List<SystemConfig> configs) {
+        long h = FNV_OFFSET;
+        LocalDateTime max = null;
+        for (SystemConfig config : configs) {
+            h = mix(h, hash(config));
+            if (config.getUpdatedAt() != null && (max == null || config.getUpdatedAt().isAfter(max))) {
+                max = config.getUpdatedAt();
+            }
+        }
+        return tag("configs" + configs.size(), max, h);
+    }
+
+    /**
+     * 带ETag的200响应；lastModified为null时不发送Last-Modified
+     */
+    public static <T> ResponseEntity<T> ok(String etag, LocalDateTime lastModified, T body) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag);
+        if (lastModified != null) {
+            builder.lastModified(lastModified.atZone(ZONE));
+        }
+        return builder.body(body);
+    }
+
+    private static String tag(String prefix, LocalDateTime updatedAt, long hash) {
+        long seconds = updatedAt != null ? updatedAt.atZone(ZONE).toEpochSecond() : 0;
+        return "W/\"" + prefix + '-' + seconds + '-' + Long.toHexString(hash) + '"';
+    }
+
+    private static long hash(User user) {
+        long h = FNV_OFFSET;
+        h = mix(h, user.getId());
+        h = mix(h, user.getUsername());
+        h = mix(h, user.getEmail());
+        h = mix(h, user.getAge());
+        h = mix(h, user.getStatus());
+        h = mix(h, user.getUpdatedAt());
+        return h;
+    }
+
+    private static long hash(SystemConfig config) {
+        long h = FNV_OFFSET;
+        h = mix(h, config.getId());
+        h = mix(h, config.getConfigKey());
+        h = mix(h, config.getConfigValue());
+        h = mix(h, config.getDescription());
+        h = mix(h, config.getUpdatedAt());
+        return h;
+    }
+
+    private static long mix(long h, Object value) {
+        if (value == null) {
+            return (h ^ 0xff) * FNV_PRIME;
+        }
+        String text = value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            h = (h ^ text.charAt(i)) * FNV_PRIME;
+        }
+        // 字段分隔，避免 "ab"+"c" 与 "a"+"bc" 相同
+        return (h ^ 0x1f) * FNV_PRIME;
+    }
+
+    private static long mix(long h, long value) {
+        for (int i = 0; i < 8; i++) {
+            h = (h ^ (value & 0xff)) * FNV_PRIME;
+            value >>>= 8;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,34 @@
+package com.demo.readwrite.dto;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 响应时间戳 - ISO-8601格式，按秒缓存格式化结果
+ *
+ * 同一秒内的请求共享同一个字符串，代替每次 new Date().toString() 的时区计算和格式化
+ */
+public final class IsoTimestamps {
+
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneId.systemDefault());
+
+    private static volatile Cached cached = new Cached(Long.MIN_VALUE, "");
+
+    private IsoTimestamps() {
+    }
+
+    public static String now() {
+        long second = System.currentTimeMillis() / 1000;
+        Cached current = cached;
+        if (current.second != second) {
+            current = new Cached(second, FORMATTER.format(Instant.ofEpochSecond(second)));
+            cached = current;
+        }
+        return current.text;
+    }
+
+    private record Cached(long second, String text) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.demo.readwrite.dto;
+
+import com.demo.readwrite.entity.SystemConfig;
+import com.demo.readwrite.entity.User;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 混合数据源接口响应 - 不可变record
+ */
+public final class MixedResponses {
+
+    public static final String CONFIG_DATASOURCE = "@DS(\"config\") - localhost:3308";
+
+    public static final String CONFIG_DB_DATASOURCE = "@DS(\"config\") - localhost:3308/config_db";
+
+    private MixedResponses() {
+    }
+
+    public record Users(String operation,
+                        @JsonProperty("expected_datasource") String expectedDatasource,
+                        List<User> users, int count, String note) {
+    }
+
+    public record UserCreated(String operation,
+                              @JsonProperty("expected_datasource") String expectedDatasource,
+                              User user, String note) {
+    }
+
+    public record Configs(String operation, String datasource, List<SystemConfig> configs, int count, String note) {
+    }
+
+    public record ConfigByKey(String operation, String key, SystemConfig config, boolean found, String datasource) {
+    }
+
+    public record ConfigById(String operation, Long id, SystemConfig config, boolean found, String datasource) {
+    }
+
+    /**
+     * 配置写操作结果 - 创建/更新/删除共用，不适用的字段为null时不输出
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ConfigMutation(String operation, String key, String value, Long id,
+                                 @JsonProperty("affected_rows") int affectedRows,
+                                 String datasource, String timestamp, String note) {
+
+        public ConfigMutation withNote(String note) {
+            return new ConfigMutation(operation, key, value, id, affectedRows, datasource, timestamp, note);
+        }
+    }
+
+    public record SyncTest(@JsonProperty("user_count") int userCount, String note, String suggestion) {
+    }
+
+    public record ConfigSnapshot(String operation, Map<String, Object> snapshot, String note) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.demo.readwrite.dto;
+
+import com.demo.readwrite.entity.User;
+import com.demo.readwrite.service.UsernameIndex;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户接口响应 - 不可变record，常量字段直接引用静态字符串，不再为每个请求构建HashMap
+ */
+public final class UserResponses {
+
+    public static final String ROUTING_SLAVE = "ShardingSphere自动路由到从库";
+
+    public static final String ROUTING_MASTER = "ShardingSphere自动路由到主库";
+
+    public static final String ROUTING_HINT_MASTER = "HintManager强制路由到主库";
+
+    public static final String ROUTING_AGGREGATES = "进程内增量聚合，定期与主库校准";
+
+    public static final String ROUTING_USERNAME_INDEX = "进程内用户名前缀索引，未就绪时回源从库";
+
+    private UserResponses() {
+    }
+
+    public record UserList(String operation, String routing, List<User> users, int count, String timestamp) {
+    }
+
+    public record UserPage(String operation, String routing, List<User> users, int count,
+                           @JsonProperty("next_cursor") String nextCursor,
+                           @JsonProperty("has_more") boolean hasMore,
+                           String timestamp) {
+    }
+
+    public record UserFeed(String operation, String routing, Integer status, List<User> users, int count,
+                           @JsonProperty("next_cursor") String nextCursor,
+                           @JsonProperty("has_more") boolean hasMore,
+                           String timestamp) {
+    }
+
+    public record UserDetail(String operation, String routing,
+                             @JsonProperty("user_id") Long userId,
+                             User user, boolean found, String timestamp) {
+    }
+
+    public record UserBatch(String operation, String routing, int requested, List<User> users, int count,
+                            @JsonProperty("missing_ids") List<Long> missingIds,
+                            String timestamp) {
+    }
+
+    public record UserCreated(String operation, String routing, User user, String timestamp) {
+    }
+
+    public record UserUpdated(String operation, String routing,
+                              @JsonProperty("user_id") Long userId,
+                              User user, String timestamp) {
+    }
+
+    public record UserDeleted(String operation, String routing,
+                              @JsonProperty("user_id") Long userId,
+                              @JsonProperty("affected_rows") int affectedRows,
+                              boolean deleted, String timestamp) {
+    }
+
+    public record UserAuth(String operation, String routing,
+                           @JsonProperty("user_id") Long userId,
+                           User user, String note, String timestamp) {
+    }
+
+    public record UserCount(String operation, String routing,
+                            @JsonProperty("total_users") int totalUsers,
+                            String timestamp) {
+    }
+
+    public record UserSearch(String operation, String routing, String username, User user, boolean found,
+                             String timestamp) {
+    }
+
+    public record UserSuggestions(String operation, String routing, String prefix,
+                                  List<UsernameIndex.Match> suggestions, int count, String timestamp) {
+    }
+
+    public record UserStats(String operation, Map<String, Object> stats, String timestamp) {
+    }
+
+    public record Replicas(String operation,
+                           @JsonProperty("load_balancer") String loadBalancer,
+                           Map<String, Object> replicas,
+                           Map<String, Object> health,
+                           @JsonProperty("max_lag_seconds") long maxLagSeconds,
+                           @JsonProperty("recover_lag_seconds") long recoverLagSeconds,
+                           @JsonProperty("master_fallbacks") long masterFallbacks,
+                           @JsonProperty("datasource_permits") Map<String, Object> datasourcePermits,
+                           Map<String, Object> bulkheads,
+                           @JsonProperty("read_your_writes") ReadYourWrites readYourWrites,
+                           String timestamp) {
+    }
+
+    public record ReadYourWrites(boolean enabled,
+                                 @JsonProperty("window_ms") long windowMs,
+                                 @JsonProperty("pinned_requests") long pinnedRequests) {
+    }
+}
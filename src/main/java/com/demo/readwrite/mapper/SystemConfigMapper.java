@@ -3,6 +3,7 @@ package com.demo.readwrite.mapper;
 import com.demo.readwrite.entity.SystemConfig;
 import org.apache.ibatis.annotations.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -14,6 +15,12 @@ public interface SystemConfigMapper {
     @Select("SELECT * FROM system_config ORDER BY id")
     List<SystemConfig> selectAll();
 
+    /**
+     * 水位线上(updated_at = since)的行每次都会返回，由调用方与已有的行比较后丢弃
+     */
+    @Select("SELECT * FROM system_config WHERE updated_at >= #{since} ORDER BY id")
+    List<SystemConfig> selectUpdatedSince(@Param("since") LocalDateTime since);
+
     @Select("SELECT * FROM system_config WHERE config_key = #{configKey}")
     SystemConfig selectByConfigKey(@Param("configKey") String configKey);
 
@@ -2,8 +2,13 @@ package com.demo.readwrite.mapper;
 
 import com.demo.readwrite.entity.User;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface UserMapper {
@@ -11,16 +16,77 @@ public interface UserMapper {
     @Select("SELECT * FROM users WHERE id = #{id}")
     User selectById(Long id);
 
+    @Select({"<script>",
+            "SELECT * FROM users WHERE id IN",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"})
+    List<User> selectByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 加锁批量读取修改前的行，用于延迟写入时维护增量聚合，必须在事务中调用
+     */
+    @Select({"<script>",
+            "SELECT * FROM users WHERE id IN",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "FOR UPDATE",
+            "</script>"})
+    List<User> selectByIdsForUpdate(@Param("ids") Collection<Long> ids);
+
     @Select("SELECT * FROM users ORDER BY id LIMIT #{limit}")
     List<User> selectList(@Param("limit") int limit);
 
+    @Select("SELECT * FROM users WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<User> selectPageAfterId(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 流式读取全部用户 - fetchSize = Integer.MIN_VALUE 让MySQL驱动逐行流式返回，不在客户端缓存整个结果集
+     */
+    @Select("SELECT * FROM users ORDER BY id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<User> selectAllCursor();
+
+    /**
+     * 流式读取全部用户名，只取建立用户名前缀索引需要的两列，不排序
+     */
+    @Select("SELECT id, username FROM users")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<User> selectUsernamesCursor();
+
     @Select("SELECT COUNT(*) FROM users")
     int count();
 
+    /**
+     * 按状态和年龄分组计数，一次扫描得到聚合校准所需的全部数据；年龄段由调用方划分
+     * 只扫描覆盖索引 idx_status_age，不回表读整行
+     */
+    @Select("SELECT status, age, COUNT(*) AS total FROM users GROUP BY status, age")
+    List<Map<String, Object>> countByStatusAndAge();
+
+    /**
+     * 可重复读事务中的第一次一致性读，用于在确定的时刻建立读视图
+     */
+    @Select("SELECT id FROM users LIMIT 1")
+    Long selectAnyId();
+
+    /**
+     * 不访问表的查询，用于在事务中预先检出连接
+     */
+    @Select("SELECT 1")
+    int ping();
+
     @Insert("INSERT INTO users (username, email, age, status) VALUES (#{username}, #{email}, #{age}, #{status})")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(User user);
 
+    @Insert({"<script>",
+            "INSERT INTO users (username, email, age, status) VALUES",
+            "<foreach collection='users' item='u' separator=','>",
+            "(#{u.username}, #{u.email}, #{u.age}, #{u.status})",
+            "</foreach>",
+            "</script>"})
+    @Options(useGeneratedKeys = true, keyProperty = "users.id")
+    int insertBatch(@Param("users") List<User> users);
+
     @Update("UPDATE users SET username = #{username}, email = #{email}, age = #{age}, status = #{status} WHERE id = #{id}")
     int update(User user);
 
@@ -30,6 +96,19 @@ public interface UserMapper {
     @Select("SELECT * FROM users WHERE username = #{username}")
     User selectByUsername(@Param("username") String username);
 
-    @Select("SELECT * FROM users WHERE status = #{status} ORDER BY created_at DESC LIMIT #{limit}")
+    /**
+     * 用户名前缀查询 - 用户名前缀索引就绪前的回源路径，pattern由调用方转义并带上末尾的%
+     */
+    @Select("SELECT id, username FROM users WHERE username LIKE #{pattern} ORDER BY username, id LIMIT #{limit}")
+    List<User> selectByUsernamePrefix(@Param("pattern") String pattern, @Param("limit") int limit);
+
+    @Select("SELECT * FROM users WHERE status = #{status} ORDER BY created_at DESC, id DESC LIMIT #{limit}")
     List<User> selectByStatus(@Param("status") Integer status, @Param("limit") int limit);
+
+    @Select("SELECT * FROM users WHERE status = #{status} AND (created_at, id) < (#{createdAt}, #{id}) " +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}")
+    List<User> selectByStatusBefore(@Param("status") Integer status,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") long id,
+                                    @Param("limit") int limit);
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.demo.readwrite.metrics;
+
+import com.demo.readwrite.routing.PhysicalDataSources;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Hikari连接池指标 - 为master/slave/slave2/config各连接池注册HikariCP自带的Micrometer指标
+ * (hikaricp_connections_active / idle / pending / timeout / usage 等，按pool标签区分)
+ *
+ * 这些连接池由ShardingSphere和Baomidou在内部创建，不是Spring Bean，Spring Boot的自动绑定覆盖不到，
+ * 这里经PhysicalDataSources取出真实的HikariDataSource后手动绑定。
+ */
+@Component
+public class HikariPoolMetrics implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(HikariPoolMetrics.class);
+
+    @Autowired
+    private ObjectProvider<DataSource> dataSources;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        MicrometerMetricsTrackerFactory factory = new MicrometerMetricsTrackerFactory(registry);
+        PhysicalDataSources.collect(dataSources).values().forEach(ds -> bind(ds, factory));
+    }
+
+    private void bind(DataSource dataSource, MicrometerMetricsTrackerFactory factory) {
+        if (!(dataSource instanceof HikariDataSource hikari)
+                || hikari.getMetricsTrackerFactory() != null || hikari.getMetricRegistry() != null) {
+            return;
+        }
+        try {
+            hikari.setMetricsTrackerFactory(factory);
+            log.info("已注册连接池指标: {}", hikari.getPoolName());
+        } catch (IllegalStateException e) {
+            log.warn("连接池 {} 注册指标失败: {}", hikari.getPoolName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.demo.readwrite.metrics;
+
+import com.baomidou.dynamic.datasource.toolkit.DynamicDataSourceContextHolder;
+import com.demo.readwrite.routing.BoundDataSource;
+import com.demo.readwrite.routing.ReadYourWritesContext;
+import com.demo.readwrite.routing.ReplicaLoadTracker;
+import com.demo.readwrite.trace.SlowQueryLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MyBatis查询指标 - 按Mapper语句和实际物理数据源记录执行次数和耗时分布
+ *
+ * 指标：
+ * - demo.mapper.query{statement, datasource, outcome}: Timer，带固定SLO桶的直方图
+ * - demo.routing.decisions{datasource, reason}: 路由决策计数
+ *
+ * 实际数据源在语句执行后判断：直接绑定数据源的SqlSessionFactory(见BoundDataSource) -> 绑定的数据源；
+ * @DS("config") -> config；写操作、读己之写、HintManager、事务内 -> master；
+ * 其余读操作取负载均衡算法本次选中的读库，算法因读库全部不可用回退时为master。
+ * Meter按 MappedStatement + 数据源缓存，热路径上只有几次Map查找和一次Timer记录，没有字符串拼接。
+ * 耗时超过阈值的语句连同实际数据源交给SlowQueryLog；关闭指标(demo.metrics.mapper.enabled=false)时慢SQL捕获仍然生效，
+ * 此时只对慢语句判断实际数据源，其余语句只多一次计时。
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class QueryMetricsInterceptor implements Interceptor {
+
+    private static final String CONFIG = "config";
+
+    private static final String MASTER = "master";
+
+    /** 直方图桶：0.5ms ~ 5s，覆盖主键查询到慢查询 */
+    private static final Duration[] SLO_BUCKETS = {
+            Duration.ofNanos(500_000), Duration.ofMillis(1), Duration.ofMillis(2), Duration.ofMillis(5),
+            Duration.ofMillis(10), Duration.ofMillis(25), Duration.ofMillis(50), Duration.ofMillis(100),
+            Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofMillis(2500),
+            Duration.ofSeconds(5)
+    };
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${demo.metrics.mapper.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+
+    private final ReplicaLoadTracker tracker = ReplicaLoadTracker.getInstance();
+
+    private final Map<MappedStatement, StatementMeters> meters = new ConcurrentHashMap<>();
+
+    /** reason -> datasource -> Counter */
+    private final Map<String, Map<String, Counter>> decisions = new ConcurrentHashMap<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (!enabled && !slowQueryLog.isEnabled()) {
+            return invocation.proceed();
+        }
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        boolean read = !"update".equals(invocation.getMethod().getName());
+        long start = System.nanoTime();
+        Object result = null;
+        boolean success = false;
+        try {
+            result = invocation.proceed();
+            success = true;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            boolean slow = slowQueryLog.isSlow(elapsed);
+            // 关闭指标时只有慢语句才需要判断实际数据源
+            if (enabled || slow) {
+                StatementMeters statementMeters = meters.get(statement);
+                if (statementMeters == null) {
+                    statementMeters = meters.computeIfAbsent(statement, StatementMeters::new);
+                }
+                String dataSource = route(statementMeters, read, start);
+                if (enabled) {
+                    statementMeters.timer(dataSource, success)
+                            .record(elapsed, TimeUnit.NANOSECONDS);
+                }
+                if (slow) {
+                    slowQueryLog.record(statement, invocation.getArgs()[1], dataSource, elapsed, result, success);
+                }
+            }
+        }
+    }
+
+    /**
+     * 只包装Executor - MyBatis对每条语句的StatementHandler、ParameterHandler、ResultSetHandler也会调用plugin，
+     * 默认的Plugin.wrap每次都反射读取@Signature和目标类的接口，即使类型不匹配、最终不包装
+     */
+    @Override
+    public Object plugin(Object target) {
+        return target instanceof Executor ? Plugin.wrap(target, this) : target;
+    }
+
+    /**
+     * 判断实际数据源，开启指标时同时记录路由决策
+     */
+    private String route(StatementMeters statementMeters, boolean read, long start) {
+        String dataSource;
+        String reason;
+        if (statementMeters.boundDataSource != null) {
+            dataSource = statementMeters.boundDataSource;
+            reason = "direct_binding";
+        } else if (CONFIG.equals(DynamicDataSourceContextHolder.peek())) {
+            dataSource = CONFIG;
+            reason = "dynamic_datasource";
+        } else if (!read) {
+            dataSource = MASTER;
+            reason = "write";
+        } else if (ReadYourWritesContext.isMasterRead()) {
+            dataSource = MASTER;
+            reason = "master_read";
+        } else {
+            String chosen = tracker.lastChosenSince(start);
+            dataSource = chosen != null ? chosen : MASTER;
+            reason = chosen != null && !tracker.lastChoiceWasFallback() ? "load_balanced" : "master_fallback";
+        }
+        if (enabled) {
+            decision(dataSource, reason).increment();
+        }
+        return dataSource;
+    }
+
+    private Counter decision(String dataSource, String reason) {
+        Map<String, Counter> byDataSource = decisions.get(reason);
+        if (byDataSource == null) {
+            byDataSource = decisions.computeIfAbsent(reason, key -> new ConcurrentHashMap<>());
+        }
+        Counter counter = byDataSource.get(dataSource);
+        if (counter == null) {
+            counter = byDataSource.computeIfAbsent(dataSource, ds -> Counter.builder("demo.routing.decisions")
+                    .description("按物理数据源和原因统计的路由决策")
+                    .tag("datasource", ds)
+                    .tag("reason", reason)
+                    .register(registry));
+        }
+        return counter;
+    }
+
+    /**
+     * 单条语句的Timer，按数据源和成功/失败缓存
+     */
+    private final class StatementMeters {
+
+        private final String statementId;
+
+        /** 语句所属SqlSessionFactory直接绑定的数据源，经路由数据源执行时为null */
+        private final String boundDataSource;
+
+        private final Map<String, Timer[]> byDataSource = new ConcurrentHashMap<>();
+
+        StatementMeters(MappedStatement statement) {
+            // com.demo.readwrite.mapper.UserMapper.selectById -> UserMapper.selectById
+            String id = statement.getId();
+            int method = id.lastIndexOf('.');
+            int type = method > 0 ? id.lastIndexOf('.', method - 1) : -1;
+            this.statementId = id.substring(type + 1);
+            this.boundDataSource = BoundDataSource.of(statement);
+        }
+
+        Timer timer(String dataSource, boolean success) {
+            Timer[] timers = byDataSource.get(dataSource);
+            if (timers == null) {
+                timers = byDataSource.computeIfAbsent(dataSource,
+                        ds -> new Timer[]{newTimer(ds, "success"), newTimer(ds, "error")});
+            }
+            return timers[success ? 0 : 1];
+        }
+
+        private Timer newTimer(String dataSource, String outcome) {
+            return Timer.builder("demo.mapper.query")
+                    .description("MyBatis语句执行耗时")
+                    .tag("statement", statementId)
+                    .tag("datasource", dataSource)
+                    .tag("outcome", outcome)
+                    .serviceLevelObjectives(SLO_BUCKETS)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.demo.readwrite.metrics;
+
+import com.demo.readwrite.routing.ReplicaHealthRegistry;
+import com.demo.readwrite.routing.ReplicaLoadTracker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 读库指标 - 负载均衡使用的在途查询数、EWMA延迟，复制延迟监控的可用状态和延迟，以及回退主库次数
+ * 都是对已有状态的只读Gauge，采集时才计算，不增加查询路径开销
+ */
+@Component
+public class ReplicaMetrics implements MeterBinder {
+
+    @Value("${demo.replication-lag.read-data-source-names:slave}")
+    private String[] readDataSourceNames;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ReplicaLoadTracker tracker = ReplicaLoadTracker.getInstance();
+        ReplicaHealthRegistry health = ReplicaHealthRegistry.getInstance();
+        for (String raw : readDataSourceNames) {
+            String name = raw.trim();
+            Gauge.builder("demo.replica.in.flight", tracker, t -> t.inFlight(name))
+                    .description("读库在途查询数")
+                    .tag("datasource", name)
+                    .register(registry);
+            Gauge.builder("demo.replica.latency.ewma", tracker, t -> t.ewmaLatencySeconds(name))
+                    .description("负载均衡使用的读库EWMA延迟")
+                    .tag("datasource", name)
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("demo.replica.eligible", health, h -> h.isEligible(name) ? 1 : 0)
+                    .description("读库是否参与读负载均衡")
+                    .tag("datasource", name)
+                    .register(registry);
+            Gauge.builder("demo.replica.lag", health, h -> {
+                        ReplicaHealthRegistry.ReplicaHealth replica = h.get(name);
+                        return replica != null && replica.lagSeconds() != null ? replica.lagSeconds() : Double.NaN;
+                    })
+                    .description("读库复制延迟")
+                    .tag("datasource", name)
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+        FunctionCounter.builder("demo.routing.master.fallbacks", health, ReplicaHealthRegistry::getMasterFallbacks)
+                .description("读库全部不可用时回退到主库的次数")
+                .register(registry);
+    }
+}
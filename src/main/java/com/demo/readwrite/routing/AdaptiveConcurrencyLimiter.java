@@ -0,0 +1,366 @@
+package com.demo.readwrite.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应并发限制 - 用户和配置接口按读/写/配置库三条路径限制同时处理的请求数，超出的请求立即返回503
+ *
+ * 连接池打满后，请求会在getConnection上最多等待 connection-timeout(30s)，延迟和线程数一起失控。
+ * 这里在进入Controller之前按路径计数，超过当前上限直接拒绝(DataSourceBusyException -> 503 + Retry-After)，
+ * 上限每 adjust-interval-ms 按梯度算法调整一次：
+ *
+ * 1. 短期延迟 = 本周期完成请求的平均耗时；长期延迟 = 短期延迟的慢速EWMA，代表无排队时的基线
+ * 2. gradient = clamp(长期延迟 × tolerance / 短期延迟, 0.5, 1)：延迟上升时按比例收缩
+ * 3. 对应Hikari池有线程在等待连接(ThreadsAwaitingConnection > 0)时，gradient 不超过 backoff-ratio
+ * 4. 新上限 = 上限 × gradient + sqrt(上限)，再与旧上限平滑；本周期在途峰值不到上限一半时不再增长
+ *
+ * 过载时上限收缩到连接池能及时服务的并发量附近，多余请求快速失败，保持吞吐不塌陷；负载回落后逐步放开。
+ * 异步接口(CompletableFuture)在异步结果分派结束时才释放计数，耗时包含舱壁排队。
+ * 调整在独立线程上执行，不占用@Scheduled共用的调度线程，也不被其上的慢任务推迟。
+ * 连接池在首次取连接时才创建MXBean，全部池解析到之前每个周期重试解析，已解析的池照常参与调整。
+ * 流式导入导出、只读进程内数据的接口不经过这里(见WebConfig)。默认关闭。
+ */
+@Component
+public class AdaptiveConcurrencyLimiter implements AsyncHandlerInterceptor {
+
+    public static final String READ = "read";
+
+    public static final String WRITE = "write";
+
+    public static final String CONFIG = "config";
+
+    /** 请求已占用的路径和开始时间，在afterCompletion中释放 */
+    private static final String ACQUIRED_ATTRIBUTE = AdaptiveConcurrencyLimiter.class.getName() + ".ACQUIRED";
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    @Autowired
+    private ObjectProvider<DataSource> dataSources;
+
+    @Value("${demo.concurrency-limit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${demo.concurrency-limit.adjust-interval-ms:100}")
+    private long adjustIntervalMs;
+
+    @Value("${demo.concurrency-limit.tolerance:2.0}")
+    private double tolerance;
+
+    @Value("${demo.concurrency-limit.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${demo.concurrency-limit.read.initial:40}")
+    private int readInitial;
+
+    @Value("${demo.concurrency-limit.read.min:8}")
+    private int readMin;
+
+    @Value("${demo.concurrency-limit.read.max:400}")
+    private int readMax;
+
+    @Value("${demo.concurrency-limit.read.pools:slave,slave2}")
+    private List<String> readPools;
+
+    @Value("${demo.concurrency-limit.write.initial:20}")
+    private int writeInitial;
+
+    @Value("${demo.concurrency-limit.write.min:4}")
+    private int writeMin;
+
+    @Value("${demo.concurrency-limit.write.max:200}")
+    private int writeMax;
+
+    @Value("${demo.concurrency-limit.write.pools:master}")
+    private List<String> writePools;
+
+    @Value("${demo.concurrency-limit.config.initial:10}")
+    private int configInitial;
+
+    @Value("${demo.concurrency-limit.config.min:2}")
+    private int configMin;
+
+    @Value("${demo.concurrency-limit.config.max:100}")
+    private int configMax;
+
+    @Value("${demo.concurrency-limit.config.pools:config}")
+    private List<String> configPools;
+
+    private final Map<String, Limit> limits = new LinkedHashMap<>();
+
+    /** 连接池在调整时解析，此时ShardingSphere和动态数据源都已创建；所有池和MXBean都拿到后不再解析 */
+    private volatile boolean poolsResolved;
+
+    private ScheduledExecutorService adjuster;
+
+    @PostConstruct
+    public void init() {
+        limits.put(READ, new Limit(READ, DataSourceBulkheads.SLAVE, readInitial, readMin, readMax, readPools));
+        limits.put(WRITE, new Limit(WRITE, DataSourceBulkheads.MASTER, writeInitial, writeMin, writeMax, writePools));
+        limits.put(CONFIG, new Limit(CONFIG, DataSourceBulkheads.CONFIG, configInitial, configMin, configMax, configPools));
+        if (enabled) {
+            adjuster = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "concurrency-limit-adjust");
+                thread.setDaemon(true);
+                return thread;
+            });
+            adjuster.scheduleWithFixedDelay(this::scheduledAdjust, adjustIntervalMs, adjustIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (adjuster != null) {
+            adjuster.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!enabled || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        Limit limit = limits.get(path(request));
+        if (!limit.tryAcquire()) {
+            throw new DataSourceBusyException(limit.dataSource, "并发已达上限(" + limit.path + " limit " + limit.limit + ")");
+        }
+        request.setAttribute(ACQUIRED_ATTRIBUTE, new Acquired(limit, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        // 同步请求在本次分派结束时释放；异步请求在请求线程释放时不调用这里，在异步结果分派结束时释放
+        if (request.getAttribute(ACQUIRED_ATTRIBUTE) instanceof Acquired acquired) {
+            request.removeAttribute(ACQUIRED_ATTRIBUTE);
+            acquired.limit.release(System.nanoTime() - acquired.startNanos);
+        }
+    }
+
+    /**
+     * 配置库接口 -> config；GET且不需要读主库 -> read；其余(写操作、强制主库查询、读己之写固定读主库) -> write
+     */
+    private static String path(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri.contains("/mixed/config")) {
+            return CONFIG;
+        }
+        boolean read = "GET".equals(request.getMethod())
+                && !uri.endsWith("/auth")
+                && !ReadYourWritesContext.isPinnedToMaster();
+        return read ? READ : WRITE;
+    }
+
+    private void scheduledAdjust() {
+        // 异常会终止scheduleWithFixedDelay的后续执行，这里记录后继续下一周期
+        try {
+            adjust();
+        } catch (RuntimeException e) {
+            log.warn("并发上限调整失败: {}", e.getMessage(), e);
+        }
+    }
+
+    void adjust() {
+        if (!poolsResolved) {
+            Map<String, DataSource> physical = PhysicalDataSources.collect(dataSources);
+            boolean resolved = true;
+            for (Limit limit : limits.values()) {
+                resolved &= limit.resolvePools(physical);
+            }
+            poolsResolved = resolved;
+        }
+        limits.values().forEach(limit -> limit.adjust(tolerance, backoffRatio));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("tolerance", tolerance);
+        result.put("backoff_ratio", backoffRatio);
+        Map<String, Object> paths = new LinkedHashMap<>();
+        limits.forEach((name, limit) -> paths.put(name, limit.stats()));
+        result.put("limits", paths);
+        return result;
+    }
+
+    private record Acquired(Limit limit, long startNanos) {
+    }
+
+    /**
+     * 一条路径的并发上限 - 在途计数用CAS，上限只由调整线程修改
+     */
+    private static final class Limit {
+
+        /** 长期延迟EWMA系数，约20个周期(2s)跟上基线变化 */
+        private static final double LONG_RTT_ALPHA = 0.05;
+
+        /** 新旧上限平滑系数 */
+        private static final double SMOOTHING = 0.2;
+
+        private final String path;
+
+        private final String dataSource;
+
+        private final int min;
+
+        private final int max;
+
+        private final List<String> poolNames;
+
+        /** 已解析的连接池，池名 -> MXBean；调整线程写入，统计接口读取 */
+        private final Map<String, HikariPoolMXBean> pools = new ConcurrentHashMap<>();
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private volatile int limit;
+
+        /** 平滑后的上限，取整前的值 */
+        private double estimate;
+
+        private volatile double longRttNanos;
+
+        private volatile double shortRttNanos;
+
+        private volatile double gradient = 1.0;
+
+        private volatile int awaitingConnection;
+
+        /** 本周期的完成次数、总耗时、在途峰值 */
+        private final LongAdder windowCount = new LongAdder();
+
+        private final LongAdder windowNanos = new LongAdder();
+
+        private final LongAccumulator windowPeak = new LongAccumulator(Math::max, 0);
+
+        private final LongAdder accepted = new LongAdder();
+
+        private final LongAdder rejected = new LongAdder();
+
+        Limit(String path, String dataSource, int initial, int min, int max, List<String> poolNames) {
+            this.path = path;
+            this.dataSource = dataSource;
+            this.min = Math.max(1, min);
+            this.max = Math.max(this.min, max);
+            this.limit = Math.min(this.max, Math.max(this.min, initial));
+            this.estimate = this.limit;
+            this.poolNames = poolNames;
+        }
+
+        boolean tryAcquire() {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current >= limit) {
+                    rejected.increment();
+                    return false;
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+            windowPeak.accumulate(current + 1);
+            accepted.increment();
+            return true;
+        }
+
+        void release(long elapsedNanos) {
+            inFlight.decrementAndGet();
+            windowCount.increment();
+            windowNanos.add(elapsedNanos);
+        }
+
+        /**
+         * 解析还没拿到的连接池，返回是否全部解析
+         */
+        boolean resolvePools(Map<String, DataSource> physical) {
+            for (String name : poolNames) {
+                String key = name.trim();
+                if (!pools.containsKey(key) && physical.get(key) instanceof HikariDataSource hikari
+                        && hikari.getHikariPoolMXBean() != null) {
+                    pools.put(key, hikari.getHikariPoolMXBean());
+                }
+            }
+            return pools.size() == poolNames.size();
+        }
+
+        void adjust(double tolerance, double backoffRatio) {
+            long count = windowCount.sumThenReset();
+            long nanos = windowNanos.sumThenReset();
+            long peak = Math.max(windowPeak.getThenReset(), inFlight.get());
+            int awaiting = 0;
+            for (HikariPoolMXBean pool : pools.values()) {
+                awaiting += pool.getThreadsAwaitingConnection();
+            }
+            awaitingConnection = awaiting;
+            if (count == 0 && awaiting == 0) {
+                return;
+            }
+
+            double next = estimate;
+            if (count > 0) {
+                double shortRtt = (double) nanos / count;
+                shortRttNanos = shortRtt;
+                double longRtt = longRttNanos == 0 ? shortRtt : longRttNanos;
+                // 过载结束后基线不应停留在高位：长期延迟远高于短期延迟时直接拉回
+                longRtt = longRtt > shortRtt * 2 ? shortRtt * 2 : longRtt * (1 - LONG_RTT_ALPHA) + shortRtt * LONG_RTT_ALPHA;
+                longRttNanos = longRtt;
+                double g = Math.max(0.5, Math.min(1.0, longRtt * tolerance / shortRtt));
+                if (awaiting > 0) {
+                    g = Math.min(g, backoffRatio);
+                }
+                gradient = g;
+                // 请求量撑不满上限时不再增长，否则上限会在低负载下无限放大
+                double queue = g >= 1.0 && peak < estimate / 2 ? 0 : Math.sqrt(estimate);
+                next = estimate * g + queue;
+            } else {
+                // 本周期没有请求完成但已有线程在等连接：全部卡在连接池上
+                gradient = backoffRatio;
+                next = estimate * backoffRatio;
+            }
+            estimate = Math.max(min, Math.min(max, estimate * (1 - SMOOTHING) + next * SMOOTHING));
+            limit = (int) estimate;
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("limit", limit);
+            result.put("min", min);
+            result.put("max", max);
+            result.put("in_flight", inFlight.get());
+            result.put("accepted", accepted.sum());
+            result.put("rejected", rejected.sum());
+            result.put("short_rtt_ms", shortRttNanos / TimeUnit.MILLISECONDS.toNanos(1));
+            result.put("long_rtt_ms", longRttNanos / TimeUnit.MILLISECONDS.toNanos(1));
+            result.put("gradient", gradient);
+            result.put("threads_awaiting_connection", awaitingConnection);
+            result.put("pools", poolNames);
+            result.put("resolved_pools", List.copyOf(pools.keySet()));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.demo.readwrite.routing;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * 启动时直接绑定到某个数据源的SqlSessionFactory - 在其MyBatis Configuration变量中登记数据源名称
+ * 拦截器据此判断语句的实际数据源，不依赖@DS上下文
+ */
+public final class BoundDataSource {
+
+    public static final String VARIABLE = "demo.bound-datasource";
+
+    private BoundDataSource() {
+    }
+
+    /**
+     * 语句所属SqlSessionFactory绑定的数据源，未绑定(经路由数据源执行)时返回null
+     */
+    public static String of(MappedStatement statement) {
+        return statement.getConfiguration().getVariables().getProperty(VARIABLE);
+    }
+}
@@ -0,0 +1,261 @@
+package com.demo.readwrite.routing;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 数据源舱壁 - 每个逻辑数据源(主库写、从库读、配置库)一个有界线程池，接口的数据库操作在对应线程池中执行
+ *
+ * 1. Tomcat请求线程只负责收发请求，数据库操作提交后立即释放，接口返回CompletableFuture
+ * 2. 线程数和等待队列都有上限，队列满时直接拒绝(503)，不在请求线程上排队
+ * 3. 超过 timeout-ms 仍在队列中的任务不再执行，请求返回503 + Retry-After，客户端可以放心重试；
+ *    已开始执行的任务不受 timeout-ms 限制，等它执行完返回真实结果：写入可能已经提交，此时返回可重试的503会导致重复写入。
+ *    已开始的任务由JDBC、连接池和事务超时约束，外层还有Servlet异步超时(spring.mvc.async.request-timeout)
+ * 4. 固定读主库的请求(读己之写)的读操作进入主库舱壁
+ *
+ * 配置库(3308)变慢时只会占满config舱壁，用户读写接口照常使用各自的线程池。
+ * 工作线程上恢复请求属性(RequestContextHolder)和读己之写的固定读主库状态，慢SQL等按请求归属的记录在工作线程上照常取到接口；
+ * 发生写入时经请求属性带回，由异步结果分派时的拦截器重新标记。任务开始后请求一直等待其结束，执行期间请求对象有效。
+ * 默认关闭，关闭时在请求线程上直接执行，返回已完成的CompletableFuture，由CompletedFutureReturnValueHandler按普通返回值写出，不走异步分派。
+ * 线程数应不大于对应Hikari池的maximum-pool-size，多余的线程只会在getConnection上等待。
+ */
+@Component
+public class DataSourceBulkheads {
+
+    public static final String MASTER = "master";
+
+    public static final String SLAVE = "slave";
+
+    public static final String CONFIG = "config";
+
+    /** 任务状态：排队中、已开始执行、排队超时(不再执行) */
+    private static final int QUEUED = 0;
+
+    private static final int STARTED = 1;
+
+    private static final int EXPIRED = 2;
+
+    @Value("${demo.bulkhead.enabled:false}")
+    private boolean enabled;
+
+    @Value("${demo.bulkhead.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${demo.bulkhead.master.threads:16}")
+    private int masterThreads;
+
+    @Value("${demo.bulkhead.master.queue:64}")
+    private int masterQueue;
+
+    @Value("${demo.bulkhead.slave.threads:24}")
+    private int slaveThreads;
+
+    @Value("${demo.bulkhead.slave.queue:128}")
+    private int slaveQueue;
+
+    @Value("${demo.bulkhead.config.threads:8}")
+    private int configThreads;
+
+    @Value("${demo.bulkhead.config.queue:16}")
+    private int configQueue;
+
+    private final Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+
+    /** 超时计时，任务完成时取消，取消的计时立即移出队列 */
+    private ScheduledThreadPoolExecutor timer;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        bulkheads.put(MASTER, new Bulkhead(MASTER, masterThreads, masterQueue));
+        bulkheads.put(SLAVE, new Bulkhead(SLAVE, slaveThreads, slaveQueue));
+        bulkheads.put(CONFIG, new Bulkhead(CONFIG, configThreads, configQueue));
+        timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "bulkhead-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(bulkhead -> bulkhead.executor.shutdown());
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 读操作 - 从库舱壁；本请求固定读主库时进入主库舱壁
+     */
+    public <T> CompletableFuture<T> read(Supplier<T> work) {
+        return submit(ReadYourWritesContext.isPinnedToMaster() ? MASTER : SLAVE, work);
+    }
+
+    /**
+     * 写操作和强制读主库 - 主库舱壁
+     */
+    public <T> CompletableFuture<T> write(Supplier<T> work) {
+        return submit(MASTER, work);
+    }
+
+    /**
+     * 配置库操作 - 配置库舱壁
+     */
+    public <T> CompletableFuture<T> config(Supplier<T> work) {
+        return submit(CONFIG, work);
+    }
+
+    /**
+     * 在指定舱壁中执行；舱壁已满时抛出DataSourceBusyException，超时时返回的future以DataSourceBusyException结束
+     */
+    public <T> CompletableFuture<T> submit(String name, Supplier<T> work) {
+        Bulkhead bulkhead = bulkheads.get(name);
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (bulkhead == null) {
+            T value = work.get();
+            exportWritten(attributes);
+            return CompletableFuture.completedFuture(value);
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // 超时只能结束还在排队的任务：谁先把QUEUED改掉谁说了算
+        AtomicInteger state = new AtomicInteger(QUEUED);
+        boolean pinned = ReadYourWritesContext.isPinnedToMaster();
+        try {
+            bulkhead.executor.execute(() -> run(bulkhead, work, result, state, pinned, attributes));
+        } catch (RejectedExecutionException e) {
+            bulkhead.rejected.increment();
+            throw new DataSourceBusyException(name, "舱壁已满(线程" + bulkhead.threads + ", 队列" + bulkhead.queue + ")");
+        }
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            if (state.compareAndSet(QUEUED, EXPIRED)) {
+                bulkhead.timeouts.increment();
+                result.completeExceptionally(new DataSourceBusyException(name, "排队超时(" + timeoutMs + "ms)"));
+            } else {
+                // 已开始执行，等它结束
+                bulkhead.overran.increment();
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        result.whenComplete((value, error) -> timeout.cancel(false));
+        return result;
+    }
+
+    private <T> void run(Bulkhead bulkhead, Supplier<T> work, CompletableFuture<T> result,
+                         AtomicInteger state, boolean pinned, RequestAttributes attributes) {
+        if (!state.compareAndSet(QUEUED, STARTED)) {
+            // 在队列中已超时，请求已返回503
+            bulkhead.expired.increment();
+            return;
+        }
+        RequestContextHolder.setRequestAttributes(attributes);
+        if (pinned) {
+            ReadYourWritesContext.pinToMaster();
+        }
+        try {
+            T value = work.get();
+            // 请求在result结束之后才会分派，此时请求对象仍然有效
+            exportWritten(attributes);
+            bulkhead.completed.increment();
+            result.complete(value);
+        } catch (RuntimeException | Error e) {
+            bulkhead.failed.increment();
+            result.completeExceptionally(e);
+        } finally {
+            ReadYourWritesContext.clear();
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private static void exportWritten(RequestAttributes attributes) {
+        if (attributes instanceof ServletRequestAttributes servlet && ReadYourWritesContext.isWritten()) {
+            servlet.getRequest().setAttribute(ReadYourWritesContext.WRITTEN_ATTRIBUTE, Boolean.TRUE);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("timeout_ms", timeoutMs);
+        Map<String, Object> pools = new LinkedHashMap<>();
+        bulkheads.forEach((name, bulkhead) -> pools.put(name, bulkhead.stats()));
+        result.put("bulkheads", pools);
+        return result;
+    }
+
+    /**
+     * 一个舱壁 - 固定大小线程池 + 有界队列，拒绝时由调用方转换为503
+     */
+    private static final class Bulkhead {
+
+        private final int threads;
+
+        private final int queue;
+
+        private final ThreadPoolExecutor executor;
+
+        private final LongAdder completed = new LongAdder();
+
+        private final LongAdder failed = new LongAdder();
+
+        private final LongAdder rejected = new LongAdder();
+
+        private final LongAdder timeouts = new LongAdder();
+
+        private final LongAdder expired = new LongAdder();
+
+        private final LongAdder overran = new LongAdder();
+
+        Bulkhead(String name, int threads, int queue) {
+            this.threads = threads;
+            this.queue = queue;
+            AtomicInteger threadIndex = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queue), runnable -> {
+                        Thread thread = new Thread(runnable, "bulkhead-" + name + "-" + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("threads", threads);
+            result.put("queue_capacity", queue);
+            result.put("active", executor.getActiveCount());
+            result.put("queued", executor.getQueue().size());
+            result.put("completed", completed.sum());
+            result.put("failed", failed.sum());
+            result.put("rejected", rejected.sum());
+            result.put("timeouts", timeouts.sum());
+            result.put("expired_in_queue", expired.sum());
+            result.put("overran_after_start", overran.sum());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.demo.readwrite.routing;
+
+/**
+ * 数据源繁忙 - 在限定时间内没有拿到数据源许可
+ */
+public class DataSourceBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String dataSourceName;
+
+    public DataSourceBusyException(String dataSourceName, String message) {
+        super("数据源 " + dataSourceName + " 繁忙: " + message);
+        this.dataSourceName = dataSourceName;
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+}
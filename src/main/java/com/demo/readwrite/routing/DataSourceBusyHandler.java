@@ -0,0 +1,31 @@
+package com.demo.readwrite.routing;
+
+import com.demo.readwrite.dto.IsoTimestamps;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 数据源繁忙返回503 - 并发已达自适应上限、舱壁已满、舱壁排队超时、等待数据源许可超时
+ * 客户端可按Retry-After稍后重试，其他数据源的接口不受影响
+ */
+@RestControllerAdvice
+public class DataSourceBusyHandler {
+
+    @ExceptionHandler(DataSourceBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleBusy(DataSourceBusyException e) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", "DATASOURCE_BUSY");
+        body.put("datasource", e.getDataSourceName());
+        body.put("message", e.getMessage());
+        body.put("timestamp", IsoTimestamps.now());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body);
+    }
+}
@@ -0,0 +1,221 @@
+package com.demo.readwrite.routing;
+
+import com.baomidou.dynamic.datasource.toolkit.DynamicDataSourceContextHolder;
+import jakarta.annotation.PostConstruct;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.shardingsphere.infra.hint.HintManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MyBatis拦截器 - 为语句打开许可持有范围，执行语句前获取目标数据源的并发许可
+ *
+ * 许可在物理连接归还之前一直持有：
+ * 1. 事务外的普通语句 - 语句结束时释放
+ * 2. 事务内的语句 - 范围绑定到事务，事务提交或回滚后释放，事务内后续语句不再重复获取
+ * 3. 游标查询 - 返回的游标关闭时释放(导出等流式读取期间连接一直被占用)
+ *
+ * 目标数据源判断：
+ * 1. 直接绑定数据源的SqlSessionFactory(见BoundDataSource) -> 绑定的数据源
+ * 2. @DS("config") 上下文 -> config
+ * 3. 写操作、事务内读、HintManager强制主库 -> master
+ * 4. 其余读操作由LatencyAwareLoadBalanceAlgorithm选定读库后获取许可
+ *
+ * 物理连接在语句执行时才检出(ShardingSphere逻辑连接按需获取，事务外的SqlSession按语句打开)，许可先于检出获取。
+ * 许可数读取各数据源的 hikari.maximum-pool-size，默认关闭，virtual-threads profile中开启。
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class DataSourcePermitInterceptor implements Interceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSourcePermitInterceptor.class);
+
+    private static final String SHARDING_PREFIX = "spring.shardingsphere.datasource.";
+
+    private static final String DYNAMIC_PREFIX = "spring.datasource.dynamic.datasource.";
+
+    private static final String CONFIG_DATASOURCE = "config";
+
+    private static final String MASTER_DATASOURCE = "master";
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${demo.datasource-permits.enabled:false}")
+    private boolean enabled;
+
+    @Value("${demo.datasource-permits.acquire-timeout-ms:30000}")
+    private long acquireTimeoutMs;
+
+    private final DataSourcePermits permits = DataSourcePermits.getInstance();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (String name : environment.getRequiredProperty(SHARDING_PREFIX + "names").split(",")) {
+            sizes.put(name.trim(), poolSize(SHARDING_PREFIX + name.trim()));
+        }
+        sizes.put(CONFIG_DATASOURCE, poolSize(DYNAMIC_PREFIX + CONFIG_DATASOURCE));
+        permits.configure(sizes, acquireTimeoutMs);
+        log.info("数据源并发许可已启用: {}", sizes);
+    }
+
+    private int poolSize(String prefix) {
+        // 与Hikari默认值一致
+        return environment.getProperty(prefix + ".hikari.maximum-pool-size", Integer.class, 10);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (!permits.isEnabled()) {
+            return invocation.proceed();
+        }
+        String method = invocation.getMethod().getName();
+        String target = resolveTarget((MappedStatement) invocation.getArgs()[0], !"update".equals(method));
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.isActualTransactionActive();
+        DataSourcePermits.Scope scope = inTransaction ? transactionScope() : permits.newScope();
+        // 游标成功返回后由游标关闭时释放
+        boolean release = !inTransaction;
+        DataSourcePermits.Scope previous = permits.enter(scope);
+        try {
+            if (target != null) {
+                permits.acquire(target);
+            }
+            Object result = invocation.proceed();
+            if (release && result instanceof Cursor<?> cursor) {
+                release = false;
+                return new PermitCursor<>(cursor, scope);
+            }
+            return result;
+        } finally {
+            permits.restore(previous);
+            if (release) {
+                scope.close();
+            }
+        }
+    }
+
+    /** 只拦截Executor，其他三类插件目标不必逐条语句解析@Signature */
+    @Override
+    public Object plugin(Object target) {
+        return target instanceof Executor ? Plugin.wrap(target, this) : target;
+    }
+
+    /**
+     * 当前事务的许可范围，首次使用时创建并在事务结束后关闭
+     */
+    private DataSourcePermits.Scope transactionScope() {
+        DataSourcePermits.Scope scope = (DataSourcePermits.Scope) TransactionSynchronizationManager.getResource(permits);
+        if (scope != null) {
+            return scope;
+        }
+        DataSourcePermits.Scope created = permits.newScope();
+        TransactionSynchronizationManager.bindResource(permits, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(permits);
+                created.close();
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 返回需要在此处获取许可的数据源，由负载均衡算法获取时返回null
+     */
+    private String resolveTarget(MappedStatement statement, boolean read) {
+        String bound = BoundDataSource.of(statement);
+        if (bound != null) {
+            return bound;
+        }
+        if (CONFIG_DATASOURCE.equals(DynamicDataSourceContextHolder.peek())) {
+            return CONFIG_DATASOURCE;
+        }
+        if (!read || TransactionSynchronizationManager.isActualTransactionActive()
+                || ReadYourWritesContext.isPinnedToMaster()
+                || HintManager.isInstantiated() && HintManager.isWriteRouteOnly()) {
+            return MASTER_DATASOURCE;
+        }
+        return null;
+    }
+
+    /**
+     * 关闭时释放许可的游标
+     */
+    private static final class PermitCursor<T> implements Cursor<T> {
+
+        private final Cursor<T> delegate;
+
+        private final DataSourcePermits.Scope scope;
+
+        PermitCursor(Cursor<T> delegate, DataSourcePermits.Scope scope) {
+            this.delegate = delegate;
+            this.scope = scope;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public boolean isConsumed() {
+            return delegate.isConsumed();
+        }
+
+        @Override
+        public int getCurrentIndex() {
+            return delegate.getCurrentIndex();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return delegate.iterator();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                delegate.close();
+            } finally {
+                scope.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.demo.readwrite.routing;
+
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据源并发许可 - 每个物理数据源一个信号量，许可数等于对应Hikari池的maximum-pool-size
+ *
+ * 请求跑在虚拟线程上时并发数不再受Tomcat线程池限制，成千上万个线程会同时挤进Hikari的getConnection。
+ * 先在信号量上排队，同一时刻进入某个数据源的语句数不超过其连接数，多余的请求在这里廉价地挂起，
+ * 而不是在连接池内部争抢、超时。
+ *
+ * 许可按"持有范围"(Scope)管理，范围与物理连接的占用时间一致，由打开范围的一方在finally中关闭：
+ * 普通语句为语句执行期间，事务内为整个事务(事务结束时释放)，游标查询为游标关闭之前。
+ * 同一范围内同一数据源只取一次许可，与一个逻辑连接对每个数据源只占用一个物理连接对应。
+ *
+ * 进程级单例：读库许可由ShardingSphere通过SPI创建的负载均衡算法在选定读库后获取，
+ * 主库和配置库许可由DataSourcePermitInterceptor获取，都记入当前线程打开的范围。
+ * 当前线程没有打开范围时(如不经过MyBatis的JDBC访问)acquire为空操作，不会取走无人释放的许可。
+ * 未配置(未启用)时所有操作都是空操作。
+ */
+public final class DataSourcePermits {
+
+    private static final DataSourcePermits INSTANCE = new DataSourcePermits();
+
+    /** 当前线程正在执行的语句所属的范围 */
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private volatile Map<String, Pool> pools = Map.of();
+
+    private volatile long acquireTimeoutMillis = 30000;
+
+    private DataSourcePermits() {
+    }
+
+    public static DataSourcePermits getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 按数据源名配置许可数，公平信号量保证先到先得
+     */
+    public void configure(Map<String, Integer> sizes, long acquireTimeoutMillis) {
+        Map<String, Pool> next = new HashMap<>();
+        sizes.forEach((name, size) -> next.put(name, new Pool(size)));
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.pools = Map.copyOf(next);
+    }
+
+    public boolean isEnabled() {
+        return !pools.isEmpty();
+    }
+
+    /**
+     * 新建一个持有范围，需由调用方关闭
+     */
+    Scope newScope() {
+        return new Scope();
+    }
+
+    /**
+     * 把范围设为当前线程的范围，返回之前的范围，语句结束后用restore恢复
+     */
+    Scope enter(Scope scope) {
+        Scope previous = CURRENT.get();
+        CURRENT.set(scope);
+        return previous;
+    }
+
+    void restore(Scope previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 获取数据源许可并记入当前线程的范围，超时抛出DataSourceBusyException；
+     * 未配置的数据源、当前线程没有范围、范围内已持有该数据源许可时直接放行
+     */
+    public void acquire(String dataSourceName) {
+        Pool pool = pools.get(dataSourceName);
+        if (pool == null) {
+            return;
+        }
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            pool.unscoped.incrementAndGet();
+            return;
+        }
+        if (scope.holds(pool)) {
+            return;
+        }
+        boolean acquired;
+        try {
+            acquired = pool.semaphore.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataSourceBusyException(dataSourceName, "等待许可时线程被中断");
+        }
+        if (!acquired) {
+            pool.timeouts.incrementAndGet();
+            throw new DataSourceBusyException(dataSourceName, "等待许可超时(" + acquireTimeoutMillis + "ms)");
+        }
+        pool.acquired.incrementAndGet();
+        scope.add(pool);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        pools.forEach((name, pool) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("permits", pool.size);
+            item.put("available", pool.semaphore.availablePermits());
+            item.put("waiting", pool.semaphore.getQueueLength());
+            item.put("acquired", pool.acquired.get());
+            item.put("timeouts", pool.timeouts.get());
+            item.put("unscoped", pool.unscoped.get());
+            result.put(name, item);
+        });
+        return result;
+    }
+
+    private static final class Pool {
+
+        final int size;
+        final Semaphore semaphore;
+        final AtomicLong acquired = new AtomicLong();
+        final AtomicLong timeouts = new AtomicLong();
+        /** 没有打开范围时请求的许可(未获取)，非零说明有绕过MyBatis拦截器的访问路径 */
+        final AtomicLong unscoped = new AtomicLong();
+
+        Pool(int size) {
+            this.size = size;
+            this.semaphore = new Semaphore(size, true);
+        }
+    }
+
+    /**
+     * 许可持有范围 - 记录已获取许可的数据源，关闭时全部释放；重复关闭无副作用
+     * 只在打开它的线程上使用，游标关闭等可能发生在之后的同一线程上
+     */
+    static final class Scope implements AutoCloseable {
+
+        private final List<Pool> held = new ArrayList<>(2);
+
+        private boolean closed;
+
+        private boolean holds(Pool pool) {
+            return held.contains(pool);
+        }
+
+        private void add(Pool pool) {
+            held.add(pool);
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Pool pool : held) {
+                pool.semaphore.release();
+            }
+            held.clear();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.demo.readwrite.routing;
+
+import org.apache.shardingsphere.readwritesplitting.spi.ReadQueryLoadBalanceAlgorithm;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 延迟感知的读库负载均衡算法 (type: LATENCY_AWARE)
+ *
+ * 采用"两次随机选择"(power of two choices)：随机取两个读库，选择开销更低的一个，
+ * 开销由ReplicaLoadTracker按EWMA延迟、在途查询数和静态权重计算。
+ * 变慢的从库会自然分到更少的读请求，而不是被轮询继续压垮。
+ * 复制延迟超限被ReplicaHealthRegistry标记为不可用的读库不参与选择，全部不可用时回退到主库。
+ * 启用数据源并发许可时，选定数据源后在此获取其许可，记入DataSourcePermitInterceptor为当前语句打开的范围，由其释放；
+ * 不经过拦截器的访问没有范围，不获取许可。
+ *
+ * 属性：
+ * - decay-ms: EWMA衰减时间常数，默认10000
+ * - {读库名}: 静态权重，默认1，与WEIGHT算法的配置方式一致
+ */
+public final class LatencyAwareLoadBalanceAlgorithm implements ReadQueryLoadBalanceAlgorithm {
+
+    public static final String TYPE = "LATENCY_AWARE";
+
+    private static final String DECAY_MS_KEY = "decay-ms";
+
+    private final Map<String, Double> weights = new HashMap<>();
+
+    private final ReplicaLoadTracker tracker = ReplicaLoadTracker.getInstance();
+
+    private final ReplicaHealthRegistry health = ReplicaHealthRegistry.getInstance();
+
+    private final DataSourcePermits permits = DataSourcePermits.getInstance();
+
+    @Override
+    public void init(Properties props) {
+        for (String key : props.stringPropertyNames()) {
+            if (DECAY_MS_KEY.equals(key)) {
+                tracker.setDecayMillis(Long.parseLong(props.getProperty(key).trim()));
+            } else {
+                double weight = Double.parseDouble(props.getProperty(key).trim());
+                if (weight <= 0) {
+                    throw new IllegalArgumentException("Read data source weight must be positive: " + key);
+                }
+                weights.put(key, weight);
+            }
+        }
+    }
+
+    @Override
+    public String getDataSource(String name, String writeDataSourceName, List<String> readDataSourceNames) {
+        List<String> candidates = health.filterEligible(readDataSourceNames);
+        if (candidates.isEmpty()) {
+            health.recordMasterFallback();
+            tracker.fallback(writeDataSourceName);
+            permits.acquire(writeDataSourceName);
+            return writeDataSourceName;
+        }
+        String chosen = choose(candidates);
+        tracker.begin(chosen);
+        permits.acquire(chosen);
+        return chosen;
+    }
+
+    private String choose(List<String> readDataSourceNames) {
+        int size = readDataSourceNames.size();
+        if (size == 1) {
+            return readDataSourceNames.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        String a = readDataSourceNames.get(first);
+        String b = readDataSourceNames.get(second);
+        return tracker.cost(a, weightOf(a)) <= tracker.cost(b, weightOf(b)) ? a : b;
+    }
+
+    private double weightOf(String dataSourceName) {
+        return weights.getOrDefault(dataSourceName, 1.0);
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+}
@@ -0,0 +1,64 @@
+package com.demo.readwrite.routing;
+
+import com.baomidou.dynamic.datasource.DynamicRoutingDataSource;
+import com.baomidou.dynamic.datasource.ds.ItemDataSource;
+import org.apache.shardingsphere.driver.jdbc.core.datasource.ShardingSphereDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.ReflectionUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 物理数据源 - 从ShardingSphere和Baomidou两个路由数据源中取出真实的连接池(master/slave/slave2/config)
+ *
+ * 这些连接池由两个框架在内部创建，不是Spring Bean。
+ * ShardingSphere没有公开获取内部数据源的API，通过反射读取其ContextManager，失败时只打印警告。
+ */
+public final class PhysicalDataSources {
+
+    private static final Logger log = LoggerFactory.getLogger(PhysicalDataSources.class);
+
+    private PhysicalDataSources() {
+    }
+
+    /**
+     * 数据源名称 -> 真实数据源；同名时以ShardingSphere内部的为准
+     */
+    public static Map<String, DataSource> collect(ObjectProvider<DataSource> dataSources) {
+        Map<String, DataSource> result = new LinkedHashMap<>();
+        dataSources.orderedStream().forEach(dataSource -> {
+            if (dataSource instanceof DynamicRoutingDataSource dynamic) {
+                dynamic.getDataSources().forEach((name, ds) -> result.putIfAbsent(name, unwrap(ds)));
+            } else if (dataSource instanceof ShardingSphereDataSource sharding) {
+                result.putAll(shardingDataSources(sharding));
+            }
+        });
+        return result;
+    }
+
+    private static DataSource unwrap(DataSource dataSource) {
+        return dataSource instanceof ItemDataSource item ? item.getRealDataSource() : dataSource;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, DataSource> shardingDataSources(ShardingSphereDataSource dataSource) {
+        try {
+            Field contextManagerField = ReflectionUtils.findField(ShardingSphereDataSource.class, "contextManager");
+            Field databaseNameField = ReflectionUtils.findField(ShardingSphereDataSource.class, "databaseName");
+            ReflectionUtils.makeAccessible(contextManagerField);
+            ReflectionUtils.makeAccessible(databaseNameField);
+            Object contextManager = contextManagerField.get(dataSource);
+            Method getDataSourceMap = ReflectionUtils.findMethod(contextManager.getClass(), "getDataSourceMap", String.class);
+            return (Map<String, DataSource>) getDataSourceMap.invoke(contextManager, databaseNameField.get(dataSource));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("无法获取ShardingSphere内部数据源，跳过master/slave连接池: {}", e.toString());
+            return Map.of();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.demo.readwrite.routing;
+
+import org.apache.shardingsphere.infra.hint.HintManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * 读己之写上下文 - 记录当前请求是否需要固定读主库、是否发生过写入
+ *
+ * 由ReadYourWritesInterceptor在请求开始时根据客户端令牌设置，请求结束时清理(异步请求在请求线程释放时清理)；
+ * 读操作通过read()执行，需要时用HintManager强制路由到主库
+ */
+public final class ReadYourWritesContext {
+
+    /** 数据库操作在舱壁线程上执行时，写入标记经该请求属性带回异步结果分派的线程 */
+    static final String WRITTEN_ATTRIBUTE = ReadYourWritesContext.class.getName() + ".WRITTEN";
+
+    private static final ThreadLocal<Boolean> MASTER_PINNED = new ThreadLocal<>();
+
+    private static final ThreadLocal<Boolean> WRITTEN = new ThreadLocal<>();
+
+    private ReadYourWritesContext() {
+    }
+
+    static void pinToMaster() {
+        MASTER_PINNED.set(Boolean.TRUE);
+    }
+
+    public static boolean isPinnedToMaster() {
+        return MASTER_PINNED.get() != null;
+    }
+
+    /**
+     * 当前线程的读是否会落到主库 - 固定读主库、已有HintManager或处于事务中
+     * 进程内缓存、合并查询等只对从库读生效的优化据此绕过
+     */
+    public static boolean isMasterRead() {
+        return isPinnedToMaster()
+                || HintManager.isInstantiated()
+                || TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    /**
+     * 标记当前请求发生了写入，响应中会下发新的一致性令牌，本请求后续的读操作也固定读主库
+     */
+    public static void markWritten() {
+        WRITTEN.set(Boolean.TRUE);
+        MASTER_PINNED.set(Boolean.TRUE);
+    }
+
+    static boolean isWritten() {
+        return WRITTEN.get() != null;
+    }
+
+    static void clear() {
+        MASTER_PINNED.remove();
+        WRITTEN.remove();
+    }
+
+    /**
+     * 执行读操作 - 固定读主库时使用HintManager强制路由到主库，否则交给ShardingSphere自动路由
+     * 已经存在HintManager时(如强制主库认证查询)直接沿用，不重复创建
+     */
+    public static <T> T read(Supplier<T> query) {
+        if (!isPinnedToMaster() || HintManager.isInstantiated()) {
+            return query.get();
+        }
+        try (HintManager hintManager = HintManager.getInstance()) {
+            hintManager.setWriteRouteOnly();
+            return query.get();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.demo.readwrite.routing;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 读己之写拦截器
+ *
+ * 客户端写入后会收到一致性令牌(写入时间戳)，后续请求通过请求头或Cookie带回；
+ * 令牌仍在一致性窗口内时，本次请求的读操作固定路由到主库，窗口过后恢复从库读取
+ *
+ * 返回CompletableFuture的接口(见DataSourceBulkheads)：请求线程释放时清理上下文，
+ * 异步结果分派时按请求属性恢复写入标记，响应中照常下发新令牌
+ */
+@Component
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String TOKEN_HEADER = "X-Read-Your-Writes-Token";
+
+    public static final String TOKEN_COOKIE = "rw_token";
+
+    @Value("${demo.read-your-writes.enabled:true}")
+    private boolean enabled;
+
+    @Value("${demo.read-your-writes.window-ms:2000}")
+    private long windowMs;
+
+    private final AtomicLong pinnedRequests = new AtomicLong();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            // 异步结果分派只写响应，不再访问数据库，也不重复计数
+            if (request.getAttribute(ReadYourWritesContext.WRITTEN_ATTRIBUTE) != null) {
+                ReadYourWritesContext.markWritten();
+            }
+            return true;
+        }
+        if (enabled && withinWindow(resolveToken(request))) {
+            ReadYourWritesContext.pinToMaster();
+            pinnedRequests.incrementAndGet();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReadYourWritesContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReadYourWritesContext.clear();
+    }
+
+    /**
+     * 生成新的一致性令牌(当前时间戳)
+     */
+    public String newToken() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
+    /**
+     * 携带令牌的Set-Cookie值，Cookie有效期即一致性窗口
+     */
+    public String tokenCookie(String token) {
+        return ResponseCookie.from(TOKEN_COOKIE, token)
+                .path("/")
+                .httpOnly(true)
+                .maxAge(Duration.ofMillis(windowMs))
+                .build()
+                .toString();
+    }
+
+    /**
+     * 直接写出响应(不经过消息转换器)的接口使用：在写响应体之前下发令牌
+     */
+    public void issueToken(HttpServletResponse response) {
+        if (!enabled) {
+            return;
+        }
+        String token = newToken();
+        response.setHeader(TOKEN_HEADER, token);
+        response.addHeader(HttpHeaders.SET_COOKIE, tokenCookie(token));
+    }
+
+    private String resolveToken(HttpServletRequest request) {
+        String token = request.getHeader(TOKEN_HEADER);
+        if (token != null) {
+            return token;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (TOKEN_COOKIE.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 令牌是写入时的毫秒时间戳；未来时间的令牌视为无效，避免客户端无限期固定主库
+     */
+    private boolean withinWindow(String token) {
+        if (token == null || token.isEmpty()) {
+            return false;
+        }
+        try {
+            long elapsed = System.currentTimeMillis() - Long.parseLong(token);
+            return elapsed >= 0 && elapsed < windowMs;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    public long getPinnedRequests() {
+        return pinnedRequests.get();
+    }
+}
@@ -0,0 +1,38 @@
+package com.demo.readwrite.routing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 写请求响应中下发一致性令牌 - 同时写入响应头和Cookie，Cookie有效期即一致性窗口
+ */
+@ControllerAdvice
+public class ReadYourWritesResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Autowired
+    private ReadYourWritesInterceptor interceptor;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (interceptor.isEnabled() && ReadYourWritesContext.isWritten()) {
+            String token = interceptor.newToken();
+            response.getHeaders().set(ReadYourWritesInterceptor.TOKEN_HEADER, token);
+            response.getHeaders().add(HttpHeaders.SET_COOKIE, interceptor.tokenCookie(token));
+        }
+        return body;
+    }
+}
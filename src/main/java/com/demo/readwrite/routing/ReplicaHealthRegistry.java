@@ -0,0 +1,89 @@
+package com.demo.readwrite.routing;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 从库健康登记表 - 记录每个读库的复制延迟和是否可参与读负载均衡
+ *
+ * 与ReplicaLoadTracker一样是进程级单例：ReplicationLagMonitor写入，
+ * ShardingSphere通过SPI创建的负载均衡算法读取。未被监控过的读库视为可用。
+ */
+public final class ReplicaHealthRegistry {
+
+    private static final ReplicaHealthRegistry INSTANCE = new ReplicaHealthRegistry();
+
+    private final Map<String, ReplicaHealth> health = new ConcurrentHashMap<>();
+
+    private final AtomicLong masterFallbacks = new AtomicLong();
+
+    private ReplicaHealthRegistry() {
+    }
+
+    public static ReplicaHealthRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEligible(String name) {
+        ReplicaHealth replica = health.get(name);
+        return replica == null || replica.eligible();
+    }
+
+    /**
+     * 过滤出可用读库，全部可用时直接返回原列表，避免热路径上的分配
+     */
+    List<String> filterEligible(List<String> readDataSourceNames) {
+        int eligible = 0;
+        for (String name : readDataSourceNames) {
+            if (isEligible(name)) {
+                eligible++;
+            }
+        }
+        if (eligible == readDataSourceNames.size()) {
+            return readDataSourceNames;
+        }
+        List<String> result = new ArrayList<>(eligible);
+        for (String name : readDataSourceNames) {
+            if (isEligible(name)) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    void recordMasterFallback() {
+        masterFallbacks.incrementAndGet();
+    }
+
+    public long getMasterFallbacks() {
+        return masterFallbacks.get();
+    }
+
+    public ReplicaHealth get(String name) {
+        return health.get(name);
+    }
+
+    public void update(String name, ReplicaHealth replica) {
+        health.put(name, replica);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        health.forEach((name, replica) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("eligible", replica.eligible());
+            item.put("lag_seconds", replica.lagSeconds());
+            item.put("checked_at", new Date(replica.checkedAtMillis()).toString());
+            item.put("error", replica.error());
+            result.put(name, item);
+        });
+        return result;
+    }
+
+    /**
+     * 单个读库的健康状态，lagSeconds为null表示本次未能获取延迟
+     */
+    public record ReplicaHealth(boolean eligible, Long lagSeconds, long checkedAtMillis, String error) {
+    }
+}
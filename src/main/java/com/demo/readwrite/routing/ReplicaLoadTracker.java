@@ -0,0 +1,181 @@
+package com.demo.readwrite.routing;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 从库负载跟踪 - 记录每个读库的在途查询数和峰值敏感的EWMA查询延迟
+ *
+ * 负载均衡算法由ShardingSphere通过SPI实例化，不受Spring管理，
+ * 因此这里使用进程级单例，在算法和MyBatis拦截器之间共享数据：
+ * 算法选中读库时调用begin()，查询返回后由ReplicaLatencyInterceptor调用complete()
+ */
+public final class ReplicaLoadTracker {
+
+    private static final ReplicaLoadTracker INSTANCE = new ReplicaLoadTracker();
+
+    /** 当前线程已选中、尚未完成的读库查询 */
+    private static final ThreadLocal<Pending> PENDING = new ThreadLocal<>();
+
+    /** 当前线程最近一次选中的读库，供路由追踪使用；每个线程复用同一个对象，不产生分配 */
+    private static final ThreadLocal<LastChoice> LAST_CHOICE = ThreadLocal.withInitial(LastChoice::new);
+
+    private final Map<String, ReplicaStats> stats = new ConcurrentHashMap<>();
+
+    private volatile long decayNanos = 10_000_000_000L;
+
+    private ReplicaLoadTracker() {
+    }
+
+    public static ReplicaLoadTracker getInstance() {
+        return INSTANCE;
+    }
+
+    void setDecayMillis(long decayMillis) {
+        this.decayNanos = Math.max(1, decayMillis) * 1_000_000L;
+    }
+
+    /**
+     * 读库开销 = 衰减后的EWMA延迟 x (在途查询数 + 1) / 权重
+     * 长时间没有新样本时延迟按空闲时长衰减，保证慢库恢复后还有机会被重新探测
+     */
+    double cost(String name, double weight) {
+        ReplicaStats replica = stats(name);
+        long now = System.nanoTime();
+        double latency = replica.ewmaNanos * Math.exp(-(double) (now - replica.lastSampleNanos) / decayNanos);
+        return latency * (replica.inFlight.get() + 1) / weight;
+    }
+
+    /**
+     * 记录本线程选中了某个读库，上一个未完成的选择(如路由后未执行)直接结束、不计延迟样本
+     */
+    void begin(String name) {
+        Pending previous = PENDING.get();
+        if (previous != null) {
+            previous.replica.inFlight.decrementAndGet();
+        }
+        ReplicaStats replica = stats(name);
+        replica.inFlight.incrementAndGet();
+        replica.selected.incrementAndGet();
+        long now = System.nanoTime();
+        PENDING.set(new Pending(replica, now));
+        remember(name, now, false);
+    }
+
+    /**
+     * 记录本线程的读因没有可用读库回退到了写库，不计入读库负载
+     */
+    void fallback(String writeDataSourceName) {
+        remember(writeDataSourceName, System.nanoTime(), true);
+    }
+
+    private static void remember(String name, long now, boolean fallback) {
+        LastChoice last = LAST_CHOICE.get();
+        last.name = name;
+        last.chosenAtNanos = now;
+        last.fallback = fallback;
+    }
+
+    /**
+     * 当前线程在startNanos之后由读负载均衡选中的数据源(读库，或回退时的写库)；
+     * 没有则返回null(未经过读负载均衡，如强制主库、事务内读)
+     */
+    public String lastChosenSince(long startNanos) {
+        LastChoice last = LAST_CHOICE.get();
+        return last.name != null && last.chosenAtNanos - startNanos >= 0 ? last.name : null;
+    }
+
+    /**
+     * 当前线程最近一次读负载均衡是否回退到了写库
+     */
+    public boolean lastChoiceWasFallback() {
+        return LAST_CHOICE.get().fallback;
+    }
+
+    /**
+     * 查询结束 - 记录延迟样本并减少在途数；本线程未选中读库(写库或强制主库)时无操作
+     */
+    public void complete() {
+        Pending pending = PENDING.get();
+        if (pending == null) {
+            return;
+        }
+        PENDING.remove();
+        pending.replica.inFlight.decrementAndGet();
+        pending.replica.observe(System.nanoTime() - pending.startNanos, decayNanos);
+    }
+
+    /**
+     * 各读库当前负载快照
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        stats.forEach((name, replica) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("ewma_latency_ms", replica.ewmaNanos / 1_000_000.0);
+            item.put("in_flight", replica.inFlight.get());
+            item.put("selected", replica.selected.get());
+            result.put(name, item);
+        });
+        return result;
+    }
+
+    /**
+     * 单个读库的在途查询数，供指标采集使用
+     */
+    public int inFlight(String name) {
+        ReplicaStats replica = stats.get(name);
+        return replica != null ? replica.inFlight.get() : 0;
+    }
+
+    /**
+     * 单个读库的EWMA延迟(秒)，供指标采集使用
+     */
+    public double ewmaLatencySeconds(String name) {
+        ReplicaStats replica = stats.get(name);
+        return replica != null ? replica.ewmaNanos / 1_000_000_000.0 : 0;
+    }
+
+    private ReplicaStats stats(String name) {
+        return stats.computeIfAbsent(name, key -> new ReplicaStats());
+    }
+
+    private record Pending(ReplicaStats replica, long startNanos) {
+    }
+
+    private static final class LastChoice {
+
+        private String name;
+
+        private long chosenAtNanos;
+
+        private boolean fallback;
+    }
+
+    private static final class ReplicaStats {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicLong selected = new AtomicLong();
+
+        private volatile double ewmaNanos;
+
+        private volatile long lastSampleNanos = System.nanoTime();
+
+        /**
+         * Peak EWMA：样本高于当前值时直接跳到样本值，对变慢反应迅速；低于当前值时按时间加权平滑回落
+         */
+        synchronized void observe(long rttNanos, long decayNanos) {
+            long now = System.nanoTime();
+            if (rttNanos > ewmaNanos) {
+                ewmaNanos = rttNanos;
+            } else {
+                double w = Math.exp(-(double) (now - lastSampleNanos) / decayNanos);
+                ewmaNanos = ewmaNanos * w + rttNanos * (1 - w);
+            }
+            lastSampleNanos = now;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.demo.readwrite.routing;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 复制延迟监控 - 定期检查每个读库的复制延迟，超过阈值时从读负载均衡中剔除，恢复后重新加入
+ *
+ * 每个读库使用一个独立的单连接Hikari池执行 SHOW REPLICA STATUS，不占用业务连接池；
+ * 剔除/恢复之间有滞后区间(max-lag-seconds / recover-lag-seconds)，避免延迟在阈值附近时来回抖动。
+ * 所有读库都不可用时，LatencyAwareLoadBalanceAlgorithm回退到主库。
+ * 检查在独立的 replication-lag-check 线程上执行：@Scheduled共用的调度线程上还有聚合校准、配置快照刷新等访问数据库的任务，
+ * 共用时它们的耗时会直接推迟对延迟读库的剔除。
+ */
+@Component
+public class ReplicationLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationLagMonitor.class);
+
+    private static final String DATASOURCE_PREFIX = "spring.shardingsphere.datasource.";
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${demo.replication-lag.enabled:true}")
+    private boolean enabled;
+
+    @Value("${demo.replication-lag.read-data-source-names:slave}")
+    private String[] readDataSourceNames;
+
+    @Value("${demo.replication-lag.check-interval-ms:2000}")
+    private long checkIntervalMs;
+
+    @Value("${demo.replication-lag.max-lag-seconds:5}")
+    private long maxLagSeconds;
+
+    @Value("${demo.replication-lag.recover-lag-seconds:2}")
+    private long recoverLagSeconds;
+
+    private final ReplicaHealthRegistry registry = ReplicaHealthRegistry.getInstance();
+
+    private final Map<String, HikariDataSource> monitorDataSources = new LinkedHashMap<>();
+
+    private ScheduledExecutorService checker;
+
+    /** 低于8.0.22的MySQL不支持 SHOW REPLICA STATUS，首次失败后改用旧语法 */
+    private volatile boolean legacySyntax;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        for (String name : readDataSourceNames) {
+            String prefix = DATASOURCE_PREFIX + name.trim() + ".";
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("LagMonitor-" + name.trim());
+            config.setJdbcUrl(environment.getRequiredProperty(prefix + "jdbc-url"));
+            config.setUsername(environment.getProperty(prefix + "username"));
+            config.setPassword(environment.getProperty(prefix + "password"));
+            config.setMaximumPoolSize(1);
+            config.setMinimumIdle(0);
+            config.setConnectionTimeout(2000);
+            // 读库不可达时不阻塞应用启动，由检查结果标记为不可用
+            config.setInitializationFailTimeout(-1);
+            monitorDataSources.put(name.trim(), new HikariDataSource(config));
+        }
+        checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replication-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::scheduledCheck, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void scheduledCheck() {
+        // 异常会终止scheduleWithFixedDelay的后续执行，这里记录后继续下一周期
+        try {
+            check();
+        } catch (RuntimeException e) {
+            log.warn("复制延迟检查失败: {}", e.getMessage(), e);
+        }
+    }
+
+    public void check() {
+        if (!enabled) {
+            return;
+        }
+        monitorDataSources.forEach(this::checkReplica);
+    }
+
+    private void checkReplica(String name, HikariDataSource dataSource) {
+        ReplicaHealthRegistry.ReplicaHealth previous = registry.get(name);
+        boolean wasEligible = previous == null || previous.eligible();
+        long now = System.currentTimeMillis();
+        ReplicaHealthRegistry.ReplicaHealth current;
+        try {
+            Long lag = queryLagSeconds(dataSource);
+            if (lag == null) {
+                current = new ReplicaHealthRegistry.ReplicaHealth(false, null, now, "复制线程未运行");
+            } else {
+                boolean eligible = wasEligible ? lag <= maxLagSeconds : lag <= recoverLagSeconds;
+                current = new ReplicaHealthRegistry.ReplicaHealth(eligible, lag, now, null);
+            }
+        } catch (SQLException e) {
+            current = new ReplicaHealthRegistry.ReplicaHealth(false, null, now, e.getMessage());
+        }
+        registry.update(name, current);
+
+        if (wasEligible && !current.eligible()) {
+            log.warn("从库 {} 已从读负载均衡中剔除: lag={}s, error={}", name, current.lagSeconds(), current.error());
+        } else if (!wasEligible && current.eligible()) {
+            log.info("从库 {} 已恢复参与读负载均衡: lag={}s", name, current.lagSeconds());
+        }
+    }
+
+    /**
+     * 查询复制延迟(秒)，不是从库或复制线程未运行时返回null
+     */
+    private Long queryLagSeconds(HikariDataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            if (!legacySyntax) {
+                try (ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+                    return readLag(rs, "Seconds_Behind_Source");
+                } catch (SQLException e) {
+                    if (e.getErrorCode() != 1064) {
+                        throw e;
+                    }
+                    legacySyntax = true;
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SHOW SLAVE STATUS")) {
+                return readLag(rs, "Seconds_Behind_Master");
+            }
+        }
+    }
+
+    private Long readLag(ResultSet rs, String column) throws SQLException {
+        if (!rs.next()) {
+            return null;
+        }
+        long lag = rs.getLong(column);
+        return rs.wasNull() ? null : lag;
+    }
+
+    public long getMaxLagSeconds() {
+        return maxLagSeconds;
+    }
+
+    public long getRecoverLagSeconds() {
+        return recoverLagSeconds;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+        monitorDataSources.values().forEach(HikariDataSource::close);
+    }
+}
@@ -1,116 +1,135 @@
 package com.demo.readwrite.service;
 
-import com.baomidou.dynamic.datasource.annotation.DS;
+import com.demo.readwrite.dto.IsoTimestamps;
+import com.demo.readwrite.dto.MixedResponses;
 import com.demo.readwrite.entity.SystemConfig;
-import com.demo.readwrite.mapper.SystemConfigMapper;
+import com.demo.readwrite.trace.RoutingTracer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import java.util.*;
 
 /**
- * 配置服务 - 使用@DS注解访问独立的config数据库
- * 该服务不参与ShardingSphere读写分离，使用Baomidou动态数据源
+ * 配置服务 - 访问独立的config数据库
+ * 该服务不参与ShardingSphere读写分离，config库的访问方式(@DS切换或直接绑定)由ConfigStore决定
+ * 读操作优先走进程内配置快照(ConfigSnapshotCache)，快照未就绪时回源config库
  */
 @Service
 public class ConfigService {
 
     @Autowired
-    private SystemConfigMapper configMapper;
+    private ConfigSnapshotCache snapshotCache;
+
+    @Autowired
+    private ConfigStore configStore;
+
+    @Autowired
+    private RoutingTracer tracer;
     
     /**
-     * 获取所有配置 - 使用@DS注解指定config数据源
+     * 获取所有配置 - 命中配置快照，未就绪时回源config库
      */
-    @DS("config")
     public List<SystemConfig> getAllConfigs() {
-        System.out.println("🔧 [CONFIG-DB] 查询所有配置 - 使用@DS(\"config\")注解访问独立配置库 localhost:3308");
-        return configMapper.selectAll();
+        long start = System.nanoTime();
+        if (snapshotCache.isReady()) {
+            List<SystemConfig> result = snapshotCache.getAll();
+            tracer.record("SELECT_ALL_CONFIGS", RoutingTracer.CONFIG_SNAPSHOT, start);
+            return result;
+        }
+        List<SystemConfig> result = configStore.loadAll();
+        tracer.record("SELECT_ALL_CONFIGS", RoutingTracer.CONFIG, start);
+        return result;
     }
     
     /**
-     * 根据配置键获取配置值 - 使用@DS注解指定config数据源
+     * 根据配置键获取配置值 - 命中配置快照，未就绪时回源config库
      */
-    @DS("config")
     public SystemConfig getConfigByKey(String configKey) {
-        System.out.println("🔧 [CONFIG-DB] 查询配置: " + configKey + " - 使用@DS(\"config\")注解访问独立配置库");
-        return configMapper.selectByConfigKey(configKey);
+        long start = System.nanoTime();
+        if (snapshotCache.isReady()) {
+            SystemConfig result = snapshotCache.getByKey(configKey);
+            tracer.record("SELECT_CONFIG_BY_KEY", RoutingTracer.CONFIG_SNAPSHOT, start);
+            return result;
+        }
+        SystemConfig result = configStore.loadByKey(configKey);
+        tracer.record("SELECT_CONFIG_BY_KEY", RoutingTracer.CONFIG, start);
+        return result;
     }
     
     /**
-     * 根据ID获取配置 - 使用@DS注解指定config数据源
+     * 根据ID获取配置 - 命中配置快照，未就绪时回源config库
      */
-    @DS("config")
     public SystemConfig getConfigById(Long id) {
-        System.out.println("🔧 [CONFIG-DB] 根据ID查询配置: " + id + " - 使用@DS(\"config\")注解访问独立配置库");
-        return configMapper.selectById(id);
+        long start = System.nanoTime();
+        if (snapshotCache.isReady()) {
+            SystemConfig result = snapshotCache.getById(id);
+            tracer.record("SELECT_CONFIG_BY_ID", RoutingTracer.CONFIG_SNAPSHOT, start);
+            return result;
+        }
+        SystemConfig result = configStore.loadById(id);
+        tracer.record("SELECT_CONFIG_BY_ID", RoutingTracer.CONFIG, start);
+        return result;
     }
     
     /**
-     * 创建新配置 - 使用@DS注解指定config数据源
+     * 创建新配置 - 写入config库，返回时已提交，随即更新配置快照
      */
-    @DS("config")
-    @Transactional
-    public Map<String, Object> createConfig(String configKey, String configValue, String description) {
-        System.out.println("🔧 [CONFIG-DB] 创建配置: " + configKey + " - 使用@DS(\"config\")注解访问独立配置库");
+    public MixedResponses.ConfigMutation createConfig(String configKey, String configValue, String description) {
+        long start = System.nanoTime();
         
         SystemConfig config = new SystemConfig(configKey, configValue, description);
-        int rows = configMapper.insert(config);
+        int rows = configStore.insert(config);
+        if (rows > 0) {
+            snapshotCache.applyUpsert(config);
+        }
         
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "CREATE_CONFIG");
-        result.put("key", configKey);
-        result.put("value", configValue);
-        result.put("id", config.getId());
-        result.put("affected_rows", rows);
-        result.put("datasource", "@DS(\"config\") - localhost:3308/config_db");
-        result.put("timestamp", new Date().toString());
+        MixedResponses.ConfigMutation result = new MixedResponses.ConfigMutation("CREATE_CONFIG",
+                configKey, configValue, config.getId(), rows,
+                MixedResponses.CONFIG_DB_DATASOURCE, IsoTimestamps.now(), null);
         
+        tracer.record("CREATE_CONFIG", RoutingTracer.CONFIG, start);
         return result;
     }
     
     /**
-     * 更新配置 - 使用@DS注解指定config数据源
+     * 更新配置 - 写入config库，返回时已提交，随即更新配置快照
      */
-    @DS("config")
-    @Transactional
-    public Map<String, Object> updateConfig(String configKey, String configValue, String description) {
-        System.out.println("🔧 [CONFIG-DB] 更新配置: " + configKey + " - 使用@DS(\"config\")注解访问独立配置库");
+    public MixedResponses.ConfigMutation updateConfig(String configKey, String configValue, String description) {
+        long start = System.nanoTime();
         
         SystemConfig config = new SystemConfig();
         config.setConfigKey(configKey);
         config.setConfigValue(configValue);
         config.setDescription(description);
         
-        int rows = configMapper.updateByConfigKey(config);
+        int rows = configStore.updateByConfigKey(config);
+        if (rows > 0) {
+            snapshotCache.applyUpdate(configKey, configValue, description);
+        }
         
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "UPDATE_CONFIG");
-        result.put("key", configKey);
-        result.put("value", configValue);
-        result.put("affected_rows", rows);
-        result.put("datasource", "@DS(\"config\") - localhost:3308/config_db");
-        result.put("timestamp", new Date().toString());
+        MixedResponses.ConfigMutation result = new MixedResponses.ConfigMutation("UPDATE_CONFIG",
+                configKey, configValue, null, rows,
+                MixedResponses.CONFIG_DB_DATASOURCE, IsoTimestamps.now(), null);
         
+        tracer.record("UPDATE_CONFIG", RoutingTracer.CONFIG, start);
         return result;
     }
     
     /**
-     * 删除配置 - 使用@DS注解指定config数据源
+     * 删除配置 - 写入config库，返回时已提交，随即更新配置快照
      */
-    @DS("config")
-    @Transactional
-    public Map<String, Object> deleteConfig(Long id) {
-        System.out.println("🔧 [CONFIG-DB] 删除配置: " + id + " - 使用@DS(\"config\")注解访问独立配置库");
+    public MixedResponses.ConfigMutation deleteConfig(Long id) {
+        long start = System.nanoTime();
         
-        int rows = configMapper.deleteById(id);
+        int rows = configStore.deleteById(id);
+        if (rows > 0) {
+            snapshotCache.applyDelete(id);
+        }
         
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "DELETE_CONFIG");
-        result.put("id", id);
-        result.put("affected_rows", rows);
-        result.put("datasource", "@DS(\"config\") - localhost:3308/config_db");
-        result.put("timestamp", new Date().toString());
+        MixedResponses.ConfigMutation result = new MixedResponses.ConfigMutation("DELETE_CONFIG",
+                null, null, id, rows,
+                MixedResponses.CONFIG_DB_DATASOURCE, IsoTimestamps.now(), null);
         
+        tracer.record("DELETE_CONFIG", RoutingTracer.CONFIG, start);
         return result;
     }
 }
\ No newline at end of file
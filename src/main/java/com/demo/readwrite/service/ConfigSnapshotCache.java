@@ -0,0 +1,366 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.SystemConfig;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 配置快照 - system_config 在进程内的只读副本
+ *
+ * 1. 快照整体不可变，通过AtomicReference原子替换，读路径无锁、无数据库往返
+ * 2. 后台按 updated_at 水位线增量轮询，只拉取变化过的行；与快照中已有的行完全相同的不算变化，
+ *    没有变化时快照、版本号和计数都不动
+ * 3. 每隔若干次增量刷新做一次全量校准，用于感知其他实例的删除操作
+ * 4. 本实例通过ConfigService写入时，在事务提交后立即更新快照
+ *
+ * 本地写入按序号记录在localChanges中(每个id只保留最新一次)。刷新开始前记下序号，
+ * 查询结果落到快照时重放序号更大的本地写入，避免刷新期间提交的修改或删除被较早的查询结果覆盖。
+ * 快照中的实体不对外共享，读方法返回副本。
+ */
+@Component
+public class ConfigSnapshotCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ConfigSnapshotCache.class);
+
+    @Autowired
+    private ConfigStore store;
+
+    @Value("${demo.config-snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${demo.config-snapshot.refresh-interval-ms:5000}")
+    private long refreshIntervalMs;
+
+    @Value("${demo.config-snapshot.full-refresh-every:60}")
+    private int fullRefreshEvery;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+
+    /** 尚未被刷新覆盖确认的本地写入，id -> 最新一次写入 */
+    private final Map<Long, LocalChange> localChanges = new ConcurrentHashMap<>();
+
+    private final AtomicLong localSeq = new AtomicLong();
+
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong fullRefreshCount = new AtomicLong();
+    private final AtomicLong deltaRowCount = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final AtomicLong localWrites = new AtomicLong();
+
+    private volatile long lastRefreshMillis;
+    private volatile String lastError;
+
+    /** 仅由调度线程访问 */
+    private int refreshesSinceFull;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            fullRefresh();
+        } catch (Exception e) {
+            // 启动时配置库不可用不阻塞应用启动，快照就绪前读操作回源数据库
+            refreshFailures.incrementAndGet();
+            lastError = e.getMessage();
+            log.warn("配置快照初始加载失败，将在下次刷新时重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时刷新 - 增量为主，周期性全量校准
+     */
+    @Scheduled(initialDelayString = "${demo.config-snapshot.refresh-interval-ms:5000}",
+            fixedDelayString = "${demo.config-snapshot.refresh-interval-ms:5000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Snapshot snapshot = current.get();
+            if (!snapshot.loaded() || snapshot.watermark() == null || ++refreshesSinceFull >= fullRefreshEvery) {
+                fullRefresh();
+            } else {
+                deltaRefresh(snapshot.watermark());
+            }
+        } catch (Exception e) {
+            refreshFailures.incrementAndGet();
+            lastError = e.getMessage();
+            log.warn("配置快照刷新失败，继续使用旧快照: {}", e.getMessage());
+        }
+    }
+
+    private void fullRefresh() {
+        long since = localSeq.get();
+        List<SystemConfig> rows = store.loadAll();
+        current.updateAndGet(s -> replayLocal(Snapshot.of(rows, s.version() + 1), since));
+        pruneLocal(since);
+        refreshesSinceFull = 0;
+        fullRefreshCount.incrementAndGet();
+        markRefreshed();
+    }
+
+    private void deltaRefresh(LocalDateTime watermark) {
+        // 使用 >= 而不是 >，避免同一秒内先后提交的修改被漏掉；代价是水位线上的行每次都会返回，
+        // 所以只保留与快照中不同的行(同一秒内的修改updated_at相同，要比较全部列)
+        long since = localSeq.get();
+        Map<Long, SystemConfig> held = current.get().byId();
+        List<SystemConfig> changed = new ArrayList<>();
+        for (SystemConfig row : store.loadUpdatedSince(watermark)) {
+            if (!sameRow(held.get(row.getId()), row)) {
+                changed.add(row);
+            }
+        }
+        if (!changed.isEmpty()) {
+            current.updateAndGet(s -> replayLocal(s.withNewer(changed), since));
+            deltaRowCount.addAndGet(changed.size());
+        }
+        pruneLocal(since);
+        markRefreshed();
+    }
+
+    /**
+     * 重放查询开始之后提交的本地写入 - 查询结果可能早于这些写入，同一id以本地写入为准
+     */
+    private Snapshot replayLocal(Snapshot snapshot, long since) {
+        Snapshot result = snapshot;
+        for (Map.Entry<Long, LocalChange> entry : localChanges.entrySet()) {
+            LocalChange change = entry.getValue();
+            if (change.seq() > since) {
+                result = change.config() != null
+                        ? result.withUpserts(List.of(change.config()))
+                        : result.withoutId(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询开始之前提交的本地写入已包含在查询结果中，不再需要重放
+     */
+    private void pruneLocal(long since) {
+        // ConcurrentHashMap按(key, value)删除，期间被新写入替换的条目会保留
+        localChanges.entrySet().removeIf(entry -> entry.getValue().seq() <= since);
+    }
+
+    private void markRefreshed() {
+        refreshCount.incrementAndGet();
+        lastRefreshMillis = System.currentTimeMillis();
+        lastError = null;
+    }
+
+    /**
+     * 快照是否可用于读
+     */
+    public boolean isReady() {
+        return enabled && current.get().loaded();
+    }
+
+    public SystemConfig getByKey(String configKey) {
+        SystemConfig config = current.get().byKey().get(configKey);
+        return config != null ? copyOf(config) : null;
+    }
+
+    public SystemConfig getById(Long id) {
+        SystemConfig config = current.get().byId().get(id);
+        return config != null ? copyOf(config) : null;
+    }
+
+    public List<SystemConfig> getAll() {
+        List<SystemConfig> all = current.get().all();
+        List<SystemConfig> result = new ArrayList<>(all.size());
+        for (SystemConfig config : all) {
+            result.add(copyOf(config));
+        }
+        return result;
+    }
+
+    /**
+     * 本地写入后更新快照 - 有事务时在提交后生效，回滚则不影响快照
+     */
+    public void applyUpsert(SystemConfig config) {
+        SystemConfig copy = copyOf(config);
+        applyLocal(s -> copy, copy.getId());
+    }
+
+    /**
+     * 按配置键合并更新值和描述，快照中不存在该键时交给下次刷新处理
+     */
+    public void applyUpdate(String configKey, String configValue, String description) {
+        applyLocal(s -> {
+            SystemConfig existing = s.byKey().get(configKey);
+            if (existing == null) {
+                return null;
+            }
+            SystemConfig updated = copyOf(existing);
+            updated.setConfigValue(configValue);
+            updated.setDescription(description);
+            // 数据库生成的新updated_at要等下次刷新才知道；置空后不再发送旧的Last-Modified，也不影响水位线
+            updated.setUpdatedAt(null);
+            return updated;
+        }, null);
+    }
+
+    public void applyDelete(Long id) {
+        applyLocal(s -> null, id);
+    }
+
+    /**
+     * 提交后登记本地写入并应用到快照
+     *
+     * @param resolve 由提交时的快照得到写入后的行，返回null表示删除
+     * @param id      被删除或写入的id；为null时取resolve结果的id，结果也为null则忽略
+     */
+    private void applyLocal(Function<Snapshot, SystemConfig> resolve, Long id) {
+        if (!enabled) {
+            return;
+        }
+        Runnable apply = () -> {
+            SystemConfig config = resolve.apply(current.get());
+            Long key = config != null ? config.getId() : id;
+            if (key == null) {
+                return;
+            }
+            // 先登记再更新快照：与刷新并发时，刷新的updateAndGet要么重放到这次写入，要么被这里覆盖
+            localChanges.put(key, new LocalChange(localSeq.incrementAndGet(), config));
+            current.updateAndGet(s -> {
+                if (!s.loaded()) {
+                    return s;
+                }
+                return config != null ? s.withUpserts(List.of(config)) : s.withoutId(key);
+            });
+            localWrites.incrementAndGet();
+        };
+        AfterCommit.run(apply);
+    }
+
+    /**
+     * 快照统计信息 - 刷新间隔、陈旧度、刷新次数等
+     */
+    public Map<String, Object> stats() {
+        Snapshot snapshot = current.get();
+        long last = lastRefreshMillis;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("ready", isReady());
+        result.put("size", snapshot.byId().size());
+        result.put("version", snapshot.version());
+        result.put("watermark", snapshot.watermark() != null ? snapshot.watermark().toString() : null);
+        result.put("refresh_interval_ms", refreshIntervalMs);
+        result.put("full_refresh_every", fullRefreshEvery);
+        result.put("last_refresh_at", last > 0 ? new Date(last).toString() : null);
+        result.put("staleness_ms", last > 0 ? System.currentTimeMillis() - last : -1);
+        result.put("refresh_count", refreshCount.get());
+        result.put("full_refresh_count", fullRefreshCount.get());
+        result.put("delta_rows", deltaRowCount.get());
+        result.put("local_writes", localWrites.get());
+        result.put("pending_local_changes", localChanges.size());
+        result.put("refresh_failures", refreshFailures.get());
+        result.put("last_error", lastError);
+        return result;
+    }
+
+    private static boolean sameRow(SystemConfig held, SystemConfig row) {
+        return held != null
+                && Objects.equals(held.getUpdatedAt(), row.getUpdatedAt())
+                && Objects.equals(held.getConfigKey(), row.getConfigKey())
+                && Objects.equals(held.getConfigValue(), row.getConfigValue())
+                && Objects.equals(held.getDescription(), row.getDescription())
+                && Objects.equals(held.getCreatedAt(), row.getCreatedAt());
+    }
+
+    private static SystemConfig copyOf(SystemConfig source) {
+        SystemConfig copy = new SystemConfig(source.getConfigKey(), source.getConfigValue(), source.getDescription());
+        copy.setId(source.getId());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        return copy;
+    }
+
+    /**
+     * 一次本地写入 - config为null表示删除
+     */
+    private record LocalChange(long seq, SystemConfig config) {
+    }
+
+    /**
+     * 不可变快照 - 每次变更都复制出新实例，配置表规模很小，复制成本可以忽略
+     */
+    private record Snapshot(Map<String, SystemConfig> byKey,
+                            Map<Long, SystemConfig> byId,
+                            List<SystemConfig> all,
+                            LocalDateTime watermark,
+                            long version,
+                            boolean loaded) {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), List.of(), null, 0, false);
+
+        static Snapshot of(Collection<SystemConfig> rows, long version) {
+            Map<Long, SystemConfig> byId = new HashMap<>();
+            for (SystemConfig row : rows) {
+                byId.put(row.getId(), row);
+            }
+            return build(byId, null, version);
+        }
+
+        Snapshot withUpserts(Collection<SystemConfig> rows) {
+            Map<Long, SystemConfig> next = new HashMap<>(byId);
+            for (SystemConfig row : rows) {
+                next.put(row.getId(), row);
+            }
+            return build(next, watermark, version + 1);
+        }
+
+        /**
+         * 增量合并 - 同一id已有更新的updated_at时保留已有行
+         */
+        Snapshot withNewer(Collection<SystemConfig> rows) {
+            Map<Long, SystemConfig> next = new HashMap<>(byId);
+            for (SystemConfig row : rows) {
+                SystemConfig existing = next.get(row.getId());
+                if (existing == null || existing.getUpdatedAt() == null || row.getUpdatedAt() == null
+                        || !row.getUpdatedAt().isBefore(existing.getUpdatedAt())) {
+                    next.put(row.getId(), row);
+                }
+            }
+            return build(next, watermark, version + 1);
+        }
+
+        Snapshot withoutId(Long id) {
+            if (!byId.containsKey(id)) {
+                return this;
+            }
+            Map<Long, SystemConfig> next = new HashMap<>(byId);
+            next.remove(id);
+            return build(next, watermark, version + 1);
+        }
+
+        private static Snapshot build(Map<Long, SystemConfig> byId, LocalDateTime watermark, long version) {
+            Map<String, SystemConfig> byKey = new HashMap<>(byId.size() * 2);
+            List<SystemConfig> all = new ArrayList<>(byId.values());
+            all.sort(Comparator.comparing(SystemConfig::getId));
+            LocalDateTime max = watermark;
+            for (SystemConfig row : all) {
+                byKey.put(row.getConfigKey(), row);
+                if (row.getUpdatedAt() != null && (max == null || row.getUpdatedAt().isAfter(max))) {
+                    max = row.getUpdatedAt();
+                }
+            }
+            return new Snapshot(Map.copyOf(byKey), Map.copyOf(byId), List.copyOf(all), max, version, true);
+        }
+    }
+}
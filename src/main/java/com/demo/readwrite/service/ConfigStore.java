@@ -0,0 +1,37 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.SystemConfig;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 配置库访问 - system_config 的全部读写，按 demo.config-binding.mode 选择实现
+ *
+ * - dynamic(默认): DynamicConfigStore，每次调用经@DS("config")切面切换到config数据源
+ * - direct: DirectConfigStore，Mapper在启动时绑定到config连接池上的独立SqlSessionFactory，调用时没有路由开销
+ *
+ * 写操作都是单条语句，返回时已经提交。
+ */
+public interface ConfigStore {
+
+    /**
+     * 全量加载配置
+     */
+    List<SystemConfig> loadAll();
+
+    /**
+     * 增量加载 updated_at 不早于水位线的配置
+     */
+    List<SystemConfig> loadUpdatedSince(LocalDateTime since);
+
+    SystemConfig loadByKey(String configKey);
+
+    SystemConfig loadById(Long id);
+
+    int insert(SystemConfig config);
+
+    int updateByConfigKey(SystemConfig config);
+
+    int deleteById(Long id);
+}
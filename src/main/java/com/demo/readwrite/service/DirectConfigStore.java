@@ -0,0 +1,113 @@
+package com.demo.readwrite.service;
+
+import com.baomidou.dynamic.datasource.DynamicRoutingDataSource;
+import com.baomidou.dynamic.datasource.ds.ItemDataSource;
+import com.demo.readwrite.entity.SystemConfig;
+import com.demo.readwrite.mapper.SystemConfigMapper;
+import com.demo.readwrite.routing.BoundDataSource;
+import jakarta.annotation.PostConstruct;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.Configuration;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.boot.autoconfigure.MybatisProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 配置库访问(direct模式) - SystemConfigMapper在启动时绑定到config连接池上的独立SqlSessionFactory
+ *
+ * 1. 复用动态数据源中已创建的config Hikari连接池，不新建连接池
+ * 2. 每次调用没有@DS切面、数据源栈压入弹出和路由数据源的查找，直接拿config池的连接
+ * 3. SqlSessionFactory不注册为Bean，MyBatis自动配置的主SqlSessionFactory和其余Mapper不受影响，@DS仍可按需使用
+ * 4. 写操作是单条语句，在config池的自动提交连接上执行
+ */
+@Component
+@ConditionalOnProperty(name = "demo.config-binding.mode", havingValue = "direct")
+public class DirectConfigStore implements ConfigStore {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectConfigStore.class);
+
+    private static final String CONFIG_DATASOURCE = "config";
+
+    @Autowired
+    private ObjectProvider<DataSource> dataSources;
+
+    @Autowired
+    private ObjectProvider<Interceptor> interceptors;
+
+    @Autowired
+    private MybatisProperties mybatisProperties;
+
+    private SystemConfigMapper configMapper;
+
+    @PostConstruct
+    public void init() throws Exception {
+        Configuration configuration = new Configuration();
+        if (mybatisProperties.getConfiguration() != null) {
+            mybatisProperties.getConfiguration().applyTo(configuration);
+        }
+        configuration.getVariables().setProperty(BoundDataSource.VARIABLE, CONFIG_DATASOURCE);
+        configuration.addMapper(SystemConfigMapper.class);
+
+        SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
+        factory.setDataSource(configDataSource());
+        factory.setConfiguration(configuration);
+        factory.setPlugins(interceptors.orderedStream().toArray(Interceptor[]::new));
+        configMapper = new SqlSessionTemplate(factory.getObject()).getMapper(SystemConfigMapper.class);
+        log.info("SystemConfigMapper已直接绑定到{}数据源", CONFIG_DATASOURCE);
+    }
+
+    private DataSource configDataSource() {
+        DataSource config = dataSources.orderedStream()
+                .filter(DynamicRoutingDataSource.class::isInstance)
+                .map(dataSource -> ((DynamicRoutingDataSource) dataSource).getDataSources().get(CONFIG_DATASOURCE))
+                .filter(dataSource -> dataSource != null)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("动态数据源中没有" + CONFIG_DATASOURCE + "数据源"));
+        return config instanceof ItemDataSource item ? item.getRealDataSource() : config;
+    }
+
+    @Override
+    public List<SystemConfig> loadAll() {
+        return configMapper.selectAll();
+    }
+
+    @Override
+    public List<SystemConfig> loadUpdatedSince(LocalDateTime since) {
+        return configMapper.selectUpdatedSince(since);
+    }
+
+    @Override
+    public SystemConfig loadByKey(String configKey) {
+        return configMapper.selectByConfigKey(configKey);
+    }
+
+    @Override
+    public SystemConfig loadById(Long id) {
+        return configMapper.selectById(id);
+    }
+
+    @Override
+    public int insert(SystemConfig config) {
+        return configMapper.insert(config);
+    }
+
+    @Override
+    public int updateByConfigKey(SystemConfig config) {
+        return configMapper.updateByConfigKey(config);
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        return configMapper.deleteById(id);
+    }
+}
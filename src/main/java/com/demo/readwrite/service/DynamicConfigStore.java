@@ -0,0 +1,66 @@
+package com.demo.readwrite.service;
+
+import com.baomidou.dynamic.datasource.annotation.DS;
+import com.demo.readwrite.entity.SystemConfig;
+import com.demo.readwrite.mapper.SystemConfigMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 配置库访问(dynamic模式，默认) - 使用@DS注解访问独立的config数据库
+ * 单独成Bean，保证ConfigService和快照刷新线程调用时@DS切面同样生效
+ * 写操作是单条语句，与direct模式一样在自动提交连接上执行；不开启事务，连接在语句执行时才检出，数据源并发许可先于检出获取
+ */
+@Component
+@ConditionalOnProperty(name = "demo.config-binding.mode", havingValue = "dynamic", matchIfMissing = true)
+public class DynamicConfigStore implements ConfigStore {
+
+    @Autowired
+    private SystemConfigMapper configMapper;
+
+    @Override
+    @DS("config")
+    public List<SystemConfig> loadAll() {
+        return configMapper.selectAll();
+    }
+
+    @Override
+    @DS("config")
+    public List<SystemConfig> loadUpdatedSince(LocalDateTime since) {
+        return configMapper.selectUpdatedSince(since);
+    }
+
+    @Override
+    @DS("config")
+    public SystemConfig loadByKey(String configKey) {
+        return configMapper.selectByConfigKey(configKey);
+    }
+
+    @Override
+    @DS("config")
+    public SystemConfig loadById(Long id) {
+        return configMapper.selectById(id);
+    }
+
+    @Override
+    @DS("config")
+    public int insert(SystemConfig config) {
+        return configMapper.insert(config);
+    }
+
+    @Override
+    @DS("config")
+    public int updateByConfigKey(SystemConfig config) {
+        return configMapper.updateByConfigKey(config);
+    }
+
+    @Override
+    @DS("config")
+    public int deleteById(Long id) {
+        return configMapper.deleteById(id);
+    }
+}
@@ -0,0 +1,372 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.User;
+import com.demo.readwrite.mapper.UserMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 用户聚合 - 在进程内增量维护用户总数、各状态人数和年龄分布
+ *
+ * 1. 通过UserService的每次写入在事务提交后更新，计数查询为常数时间，不再对users表做COUNT(*)
+ * 2. 后台定期在主库上按 (status, age) 分组计数校准，纠正其他实例写入或异常造成的偏差
+ * 3. 校准期间发生的本地写入会被记录下来，在新结果上重放，不会被校准覆盖
+ * 4. 每次校准与本地值的差异(drift)通过stats()暴露
+ *
+ * 校准的分组计数在可重复读事务中执行，读视图的建立与"开始记录待重放变更"在commitLock写锁下同时完成；
+ * 本地写入从提交前到应用完计数一直持有读锁。因此每个本地写入要么已提交并计入current、不在待重放列表中，
+ * 要么在读视图之后提交、不在校准结果中而在待重放列表中，不会被计两次或漏计。
+ *
+ * 校准必须在主库上执行：从库的读视图与本实例的提交不同步，上面的计一次保证不成立。
+ * 代价是每 reconcile-interval-ms 在主库上扫描一遍 idx_status_age(覆盖索引，不回表)，与行数成正比，
+ * 所以间隔取分钟级，只用于纠正偏差，计数查询本身不访问数据库。
+ * 首次加载和校准都在独立的 user-aggregates-reconcile 线程上执行，不阻塞启动，也不占用@Scheduled共用的调度线程。
+ */
+@Component
+public class UserAggregates {
+
+    private static final Logger log = LoggerFactory.getLogger(UserAggregates.class);
+
+    /** 年龄段: 0-9, 10-19, ..., 90+，最后一格为未知年龄 */
+    private static final int AGE_BUCKETS = 10;
+
+    private static final int UNKNOWN_AGE = AGE_BUCKETS;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${demo.user-aggregates.enabled:true}")
+    private boolean enabled;
+
+    @Value("${demo.user-aggregates.reconcile-interval-ms:60000}")
+    private long reconcileIntervalMs;
+
+    /** 当前计数，写入和替换都在this上同步，读取不加锁 */
+    private volatile Counts current;
+
+    /** 非null表示正在校准，期间的本地变更同时记录在这里 */
+    private List<Delta> pendingDuringReconcile;
+
+    /** 本地写入在提交前后持有读锁；校准建立读视图并切换待重放列表时持有写锁 */
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    /** 校准使用的可重复读事务，事务内的读由ShardingSphere路由到主库 */
+    private TransactionTemplate snapshotTransaction;
+
+    private ScheduledExecutorService reconciler;
+
+    private final AtomicLong reconcileCount = new AtomicLong();
+    private final AtomicLong reconcileFailures = new AtomicLong();
+    private final AtomicLong localWrites = new AtomicLong();
+
+    private volatile long lastReconcileMillis;
+    private volatile long lastReconcileElapsedMs;
+    private volatile long lastDriftTotal;
+    private volatile long lastDriftByStatus;
+    private volatile long lastDriftByAge;
+    private volatile long maxAbsDriftTotal;
+    private volatile String lastError;
+
+    /**
+     * 在后台线程上立即加载一次，之后每 reconcile-interval-ms 校准；加载完成前计数查询回源数据库
+     */
+    @PostConstruct
+    public void init() {
+        snapshotTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        if (!enabled) {
+            return;
+        }
+        reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-aggregates-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcile, 0, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    /**
+     * 校准 - 主库分组计数，替换本地值并记录偏差；失败只记录，不抛出
+     */
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Counts[] before = new Counts[1];
+        try {
+            // 在主库上校准，避免从库复制延迟被误判为偏差
+            List<Map<String, Object>> rows = snapshotTransaction.execute(status -> {
+                // 先检出连接：不访问InnoDB表，不建立读视图；持锁期间不再等待连接池
+                userMapper.ping();
+                commitLock.writeLock().lock();
+                try {
+                    // 可重复读事务的第一次一致性读建立读视图，之后的分组计数都基于该视图
+                    userMapper.selectAnyId();
+                    synchronized (this) {
+                        before[0] = current;
+                        pendingDuringReconcile = new ArrayList<>();
+                    }
+                } finally {
+                    commitLock.writeLock().unlock();
+                }
+                return userMapper.countByStatusAndAge();
+            });
+            Counts loaded = Counts.of(rows);
+            synchronized (this) {
+                if (before[0] != null) {
+                    lastDriftTotal = loaded.total - before[0].total;
+                    lastDriftByStatus = distance(loaded.byStatus, before[0].byStatus);
+                    lastDriftByAge = distance(loaded.byAge, before[0].byAge);
+                    maxAbsDriftTotal = Math.max(maxAbsDriftTotal, Math.abs(lastDriftTotal));
+                }
+                for (Delta delta : pendingDuringReconcile) {
+                    loaded = loaded.apply(delta);
+                }
+                current = loaded;
+                pendingDuringReconcile = null;
+            }
+            reconcileCount.incrementAndGet();
+            lastReconcileMillis = System.currentTimeMillis();
+            lastReconcileElapsedMs = lastReconcileMillis - start;
+            lastError = null;
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingDuringReconcile = null;
+            }
+            reconcileFailures.incrementAndGet();
+            lastError = e.getMessage();
+            log.warn("用户聚合校准失败，继续使用当前值，下次校准时重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 聚合是否可用于读
+     */
+    public boolean isReady() {
+        return enabled && current != null;
+    }
+
+    public long getTotal() {
+        return current.total;
+    }
+
+    public void recordInsert(User user) {
+        apply(List.of(new Delta(user.getStatus(), user.getAge(), 1)));
+    }
+
+    public void recordInserts(List<User> users) {
+        List<Delta> deltas = new ArrayList<>(users.size());
+        for (User user : users) {
+            deltas.add(new Delta(user.getStatus(), user.getAge(), 1));
+        }
+        apply(deltas);
+    }
+
+    public void recordUpdate(User before, User after) {
+        apply(List.of(new Delta(before.getStatus(), before.getAge(), -1),
+                new Delta(after.getStatus(), after.getAge(), 1)));
+    }
+
+    public void recordDelete(User before) {
+        apply(List.of(new Delta(before.getStatus(), before.getAge(), -1)));
+    }
+
+    /**
+     * 有事务时在提交后生效，回滚则不影响计数；从提交前到应用完持有commitLock读锁
+     */
+    private void apply(List<Delta> deltas) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyNow(deltas);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                applyNow(deltas);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) {
+                    locked = false;
+                    commitLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    private void applyNow(List<Delta> deltas) {
+        synchronized (this) {
+            if (current == null) {
+                return;
+            }
+            Counts next = current;
+            for (Delta delta : deltas) {
+                next = next.apply(delta);
+            }
+            current = next;
+            if (pendingDuringReconcile != null) {
+                pendingDuringReconcile.addAll(deltas);
+            }
+        }
+        localWrites.incrementAndGet();
+    }
+
+    /**
+     * 聚合结果和校准统计
+     */
+    public Map<String, Object> stats() {
+        Counts counts = current;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ready", isReady());
+        if (counts != null) {
+            result.put("total_users", counts.total);
+            Map<String, Long> byStatus = new TreeMap<>();
+            counts.byStatus.forEach((status, count) -> byStatus.put(String.valueOf(status), count));
+            result.put("by_status", byStatus);
+            Map<String, Long> byAge = new LinkedHashMap<>();
+            for (int i = 0; i <= UNKNOWN_AGE; i++) {
+                byAge.put(bucketLabel(i), counts.byAge[i]);
+            }
+            result.put("age_histogram", byAge);
+        }
+        long last = lastReconcileMillis;
+        Map<String, Object> reconcile = new LinkedHashMap<>();
+        reconcile.put("interval_ms", reconcileIntervalMs);
+        reconcile.put("last_reconcile_at", last > 0 ? new Date(last).toString() : null);
+        reconcile.put("last_elapsed_ms", lastReconcileElapsedMs);
+        reconcile.put("count", reconcileCount.get());
+        reconcile.put("failures", reconcileFailures.get());
+        reconcile.put("last_drift_total", lastDriftTotal);
+        reconcile.put("last_drift_by_status", lastDriftByStatus);
+        reconcile.put("last_drift_by_age", lastDriftByAge);
+        reconcile.put("max_abs_drift_total", maxAbsDriftTotal);
+        reconcile.put("local_writes", localWrites.get());
+        reconcile.put("last_error", lastError);
+        result.put("reconcile", reconcile);
+        return result;
+    }
+
+    private static String bucketLabel(int bucket) {
+        if (bucket == UNKNOWN_AGE) {
+            return "unknown";
+        }
+        if (bucket == AGE_BUCKETS - 1) {
+            return bucket * 10 + "+";
+        }
+        return bucket * 10 + "-" + (bucket * 10 + 9);
+    }
+
+    private static int bucketOf(Integer age) {
+        if (age == null || age < 0) {
+            return UNKNOWN_AGE;
+        }
+        return Math.min(age / 10, AGE_BUCKETS - 1);
+    }
+
+    private static long distance(Map<Integer, Long> a, Map<Integer, Long> b) {
+        Set<Integer> keys = new HashSet<>(a.keySet());
+        keys.addAll(b.keySet());
+        long sum = 0;
+        for (Integer key : keys) {
+            sum += Math.abs(a.getOrDefault(key, 0L) - b.getOrDefault(key, 0L));
+        }
+        return sum;
+    }
+
+    private static long distance(long[] a, long[] b) {
+        long sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += Math.abs(a[i] - b[i]);
+        }
+        return sum;
+    }
+
+    /**
+     * 一行变更: 在 (status, age) 上加减一
+     */
+    private record Delta(Integer status, Integer age, int sign) {
+    }
+
+    /**
+     * 不可变计数快照，每次变更复制出新实例；状态种类和年龄段都很少，复制成本可以忽略
+     */
+    private static final class Counts {
+
+        final long total;
+        final Map<Integer, Long> byStatus;
+        final long[] byAge;
+
+        Counts(long total, Map<Integer, Long> byStatus, long[] byAge) {
+            this.total = total;
+            this.byStatus = byStatus;
+            this.byAge = byAge;
+        }
+
+        /**
+         * 由 (status, age) 分组计数构建，年龄段与增量更新使用同一个bucketOf
+         */
+        static Counts of(List<Map<String, Object>> rows) {
+            long total = 0;
+            Map<Integer, Long> byStatus = new HashMap<>();
+            long[] byAge = new long[AGE_BUCKETS + 1];
+            for (Map<String, Object> row : rows) {
+                long count = ((Number) row.get("total")).longValue();
+                Number status = (Number) row.get("status");
+                Number age = (Number) row.get("age");
+                total += count;
+                byStatus.merge(status != null ? status.intValue() : null, count, Long::sum);
+                byAge[bucketOf(age != null ? age.intValue() : null)] += count;
+            }
+            return new Counts(total, byStatus, byAge);
+        }
+
+        Counts apply(Delta delta) {
+            Map<Integer, Long> nextStatus = new HashMap<>(byStatus);
+            nextStatus.merge(delta.status(), (long) delta.sign(), Long::sum);
+            long[] nextAge = byAge.clone();
+            nextAge[bucketOf(delta.age())] += delta.sign();
+            return new Counts(total + delta.sign(), nextStatus, nextAge);
+        }
+    }
+}
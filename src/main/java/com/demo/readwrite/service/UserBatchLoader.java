@@ -0,0 +1,222 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.User;
+import com.demo.readwrite.mapper.UserMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 用户按ID合并查询 - 把短时间内并发到达的按ID查询合并成一条 WHERE id IN (...)
+ *
+ * 1. 第一个到达的调用方成为本批次的leader，最多等待window-micros或批次攒满max-batch-size；
+ *    leader到达时没有其他调用方在等待任何批次(低并发)则不等待，直接查询，避免给单个查询白白增加窗口延迟
+ * 2. leader在自己的线程上执行一次IN查询，按ID把结果分发给批次内所有等待者，不需要额外的调度线程
+ * 3. 同一批次内重复的ID共享同一个结果
+ * 4. 只用于从库读；需要读主库的调用(读己之写、HintManager、事务内)由调用方直接查询，不进入批次
+ *
+ * 等待使用ReentrantLock/Condition而不是synchronized，虚拟线程等待时不会占住载体线程。
+ */
+@Component
+public class UserBatchLoader {
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Value("${demo.user-batch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${demo.user-batch.window-micros:1000}")
+    private long windowMicros;
+
+    @Value("${demo.user-batch.max-batch-size:100}")
+    private int maxBatchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition batchFull = lock.newCondition();
+
+    /** 正在收集的批次，由lock保护 */
+    private Batch open;
+
+    /** 正在load中(收集、查询或等待结果)的调用方数 */
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong keys = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong fullBatches = new AtomicLong();
+    private final AtomicLong skippedWindows = new AtomicLong();
+
+    /**
+     * 按ID查询单个用户，与同一时间窗口内的其他查询合并执行
+     */
+    public User load(Long id) {
+        if (!enabled) {
+            return userMapper.selectById(id);
+        }
+        active.incrementAndGet();
+        try {
+            Batch batch;
+            CompletableFuture<User> result;
+            boolean leader;
+            lock.lock();
+            try {
+                leader = open == null;
+                if (leader) {
+                    open = new Batch();
+                }
+                batch = open;
+                result = batch.add(id);
+                if (batch.size() >= maxBatchSize) {
+                    open = null;
+                    fullBatches.incrementAndGet();
+                    batchFull.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+            requests.incrementAndGet();
+            if (leader) {
+                awaitWindow(batch);
+                execute(batch);
+            }
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    /**
+     * 批量查询 - 多取接口使用，按max-batch-size分段执行IN查询
+     */
+    public Map<Long, User> loadAll(Set<Long> ids) {
+        Map<Long, User> result = new HashMap<>(ids.size() * 2);
+        List<Long> chunk = new ArrayList<>(Math.min(ids.size(), maxBatchSize));
+        for (Long id : ids) {
+            chunk.add(id);
+            if (chunk.size() >= maxBatchSize) {
+                query(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            query(chunk, result);
+        }
+        return result;
+    }
+
+    private void query(Collection<Long> ids, Map<Long, User> result) {
+        for (User user : userMapper.selectByIds(padded(ids))) {
+            result.put(user.getId(), user);
+        }
+        batches.incrementAndGet();
+        keys.addAndGet(ids.size());
+    }
+
+    /**
+     * IN列表补齐到2的幂(重复最后一个ID，不影响结果)
+     * 批次大小各不相同，不补齐时每种大小都是一种新的SQL文本，ShardingSphere要各解析一次并占一个解析缓存位置；
+     * 补齐后最多 log2(max-batch-size)+1 种；UserWriteBehind的 FOR UPDATE 批量读取同样使用
+     */
+    static Collection<Long> padded(Collection<Long> ids) {
+        int size = ids.size();
+        if (size == 0 || Integer.bitCount(size) == 1) {
+            return ids;
+        }
+        int target = Integer.highestOneBit(size) << 1;
+        List<Long> padded = new ArrayList<>(target);
+        padded.addAll(ids);
+        Long last = padded.get(size - 1);
+        while (padded.size() < target) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
+    /**
+     * leader等待窗口结束或批次攒满，然后关闭批次；只有leader自己在load中时不等待
+     */
+    private void awaitWindow(Batch batch) {
+        long remaining = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            if (open == batch && batch.size() == 1 && active.get() == 1) {
+                skippedWindows.incrementAndGet();
+                remaining = 0;
+            }
+            while (open == batch && remaining > 0) {
+                try {
+                    remaining = batchFull.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    // 其他调用方在等待本批次结果，不能放弃，立即执行
+                    interrupted = true;
+                    break;
+                }
+            }
+            if (open == batch) {
+                open = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(Batch batch) {
+        try {
+            Map<Long, User> found = new HashMap<>(batch.size() * 2);
+            query(batch.waiters.keySet(), found);
+            batch.waiters.forEach((id, future) -> future.complete(found.get(id)));
+        } catch (Throwable e) {
+            // 包括Error在内都要通知等待者，否则它们会一直阻塞
+            batch.waiters.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long batchCount = batches.get();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("window_micros", windowMicros);
+        result.put("max_batch_size", maxBatchSize);
+        result.put("requests", requests.get());
+        result.put("batches", batchCount);
+        result.put("full_batches", fullBatches.get());
+        result.put("skipped_windows", skippedWindows.get());
+        result.put("average_batch_size", batchCount > 0 ? (double) keys.get() / batchCount : 0);
+        return result;
+    }
+
+    /**
+     * 一个批次 - 按ID去重的等待者，只在lock内修改，关闭后只读
+     */
+    private static final class Batch {
+
+        final Map<Long, CompletableFuture<User>> waiters = new LinkedHashMap<>();
+
+        CompletableFuture<User> add(Long id) {
+            return waiters.computeIfAbsent(id, key -> new CompletableFuture<>());
+        }
+
+        int size() {
+            return waiters.size();
+        }
+    }
+}
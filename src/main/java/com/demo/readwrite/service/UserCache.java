@@ -0,0 +1,239 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.User;
+import com.demo.readwrite.routing.ReadYourWritesContext;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 用户实体缓存 - 按ID和用户名两个维度缓存从库读到的用户
+ *
+ * 1. Caffeine有界缓存：按条数和写入后存活时间淘汰，W-TinyLFU准入，热点用户常驻，偶发访问的用户不会挤掉热点
+ * 2. 未命中时同一个键只有一个线程执行查询，并发的其他线程等待同一结果(single-flight)；
+ *    按ID的缓存是AsyncCache，缓存里先放入一个未完成的future，查询在调用方线程、缓存的锁之外执行，
+ *    UserBatchLoader的收集窗口不会占住Caffeine的哈希桶锁而阻塞同一桶里其他键的读写
+ * 3. 更新在事务提交后把新值写入缓存(按ID和新用户名)并失效旧用户名，删除在提交后失效；查不到的用户不缓存，所以新建用户无需处理
+ * 4. 读己之写固定主库、HintManager强制主库、事务内的读不经过缓存，保证这些场景读到最新数据
+ *
+ * 本实例写入后 write-guard-ms 内，从库加载到的结果不放入缓存：从库可能还没复制到这次写入，
+ * 缓存旧值会把秒级的复制延迟放大到 expire-after-write-ms。该时长应不小于复制延迟剔除阈值(replication-lag.max-lag-seconds)。
+ * 其他实例的写入在本实例上最多 expire-after-write-ms 后可见。
+ */
+@Component
+public class UserCache {
+
+    @Value("${demo.user-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${demo.user-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${demo.user-cache.expire-after-write-ms:30000}")
+    private long expireAfterWriteMs;
+
+    private AsyncCache<Long, User> byIdAsync;
+
+    /** byIdAsync的同步视图，读取未完成的条目时等待其完成 */
+    private Cache<Long, User> byId;
+
+    @Value("${demo.user-cache.write-guard-ms:5000}")
+    private long writeGuardMs;
+
+    private Cache<String, User> byUsername;
+
+    /** 最近写入过的ID和用户名，存活write-guard-ms；其间从库加载的结果不缓存 */
+    private Cache<Object, Boolean> recentWrites;
+
+    @PostConstruct
+    public void init() {
+        byIdAsync = builder().buildAsync();
+        byId = byIdAsync.synchronous();
+        byUsername = builder().build();
+        recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(writeGuardMs))
+                .build();
+    }
+
+    private Caffeine<Object, Object> builder() {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .recordStats();
+    }
+
+    /**
+     * 按ID读取，未命中时调用loader加载；loader返回null时不缓存
+     */
+    public User getById(Long id, Supplier<User> loader) {
+        if (isBypassed() || recentWrites.getIfPresent(id) != null) {
+            return get(byId, id, loader);
+        }
+        CompletableFuture<User> created = new CompletableFuture<>();
+        CompletableFuture<User> future = byIdAsync.get(id, (key, executor) -> created);
+        if (future == created) {
+            // 本线程放入的future由本线程加载；结果为null或异常时Caffeine移除该条目
+            try {
+                created.complete(loader.get());
+            } catch (Throwable e) {
+                created.completeExceptionally(e);
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * 按ID批量读取，未命中的ID一次性交给loader加载；返回结果不包含不存在的用户
+     * 加载结果用putIfAbsent放入，不覆盖加载期间写入的新值，最近写入过的ID不放入
+     */
+    public Map<Long, User> getAllById(Collection<Long> ids, Function<Set<Long>, Map<Long, User>> loader) {
+        if (isBypassed()) {
+            return loader.apply(new LinkedHashSet<>(ids));
+        }
+        Map<Long, User> result = new HashMap<>(byId.getAllPresent(ids));
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (!result.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        loader.apply(missing).forEach((id, user) -> {
+            result.put(id, user);
+            if (recentWrites.getIfPresent(id) == null) {
+                byId.asMap().putIfAbsent(id, user);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 按用户名读取，未命中时调用loader加载；loader返回null时不缓存
+     */
+    public User getByUsername(String username, Supplier<User> loader) {
+        return get(byUsername, username, loader);
+    }
+
+    private <K> User get(Cache<K, User> cache, K key, Supplier<User> loader) {
+        if (isBypassed()) {
+            return loader.get();
+        }
+        if (recentWrites.getIfPresent(key) != null) {
+            // 刚写入过：已缓存的是写入的新值，直接用；未缓存时从库可能还是旧值，加载但不缓存
+            User cached = cache.getIfPresent(key);
+            return cached != null ? cached : loader.get();
+        }
+        return cache.get(key, k -> loader.get());
+    }
+
+    /**
+     * 只查缓存，不加载、不计入命中率；未启用或未缓存时返回null
+     */
+    public User peek(Long id) {
+        return enabled ? byId.policy().getIfPresentQuietly(id) : null;
+    }
+
+    /**
+     * 事务提交后写入更新后的用户，按ID和新用户名缓存，staleUsernames(旧用户名)失效；null会被忽略
+     */
+    public void put(User user, String... staleUsernames) {
+        if (!enabled) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            guard(user.getId(), user.getUsername());
+            guard(null, staleUsernames);
+            byId.put(user.getId(), user);
+            for (String username : staleUsernames) {
+                if (username != null && !username.equals(user.getUsername())) {
+                    byUsername.invalidate(username);
+                }
+            }
+            byUsername.put(user.getUsername(), user);
+        });
+    }
+
+    /**
+     * 事务提交后失效指定用户，usernames中的null会被忽略
+     */
+    public void invalidate(Long id, String... usernames) {
+        if (!enabled) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            guard(id, usernames);
+            byId.invalidate(id);
+            for (String username : usernames) {
+                if (username != null) {
+                    byUsername.invalidate(username);
+                }
+            }
+        });
+    }
+
+    private void guard(Long id, String... usernames) {
+        if (id != null) {
+            recentWrites.put(id, Boolean.TRUE);
+        }
+        for (String username : usernames) {
+            if (username != null) {
+                recentWrites.put(username, Boolean.TRUE);
+            }
+        }
+    }
+
+    private boolean isBypassed() {
+        return !enabled || ReadYourWritesContext.isMasterRead();
+    }
+
+    /**
+     * 命中率、加载耗时、淘汰次数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("maximum_size", maximumSize);
+        result.put("expire_after_write_ms", expireAfterWriteMs);
+        result.put("write_guard_ms", writeGuardMs);
+        result.put("write_guarded_keys", recentWrites.estimatedSize());
+        result.put("by_id", stats(byId));
+        result.put("by_username", stats(byUsername));
+        return result;
+    }
+
+    private static Map<String, Object> stats(Cache<?, User> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hit_count", stats.hitCount());
+        result.put("miss_count", stats.missCount());
+        result.put("hit_ratio", stats.hitRate());
+        result.put("load_count", stats.loadCount());
+        result.put("load_failure_count", stats.loadFailureCount());
+        result.put("average_load_us", stats.averageLoadPenalty() / 1000);
+        result.put("eviction_count", stats.evictionCount());
+        return result;
+    }
+}
@@ -0,0 +1,397 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 用户批量导入Service - 流式解析NDJSON/CSV，按块写入主库
+ *
+ * 1. 逐行解析请求体，任意时刻内存中最多只有一个块(chunk-size行)
+ * 2. 每块使用一条多行INSERT、一个事务写入主库，生成的ID按顺序回填
+ * 3. 某块整体失败(如用户名重复)时，退回到逐行写入，定位出错的行，其余行照常入库
+ *
+ * CSV按RFC 4180解析：字段可用双引号包围，引号内可含逗号、换行和转义的双引号("")，可直接导入 /api/users/export?format=csv 的输出。
+ * 首条记录包含username和email列名时视为表头，按列名取值，其余列忽略；否则按 username,email,age 的列顺序读取。
+ * age为必填整数，缺失或无法解析的行计为失败，不使用默认值。
+ */
+@Service
+public class UserImportService {
+
+    private static final int MAX_USERNAME_LENGTH = 50;
+
+    private static final int MAX_EMAIL_LENGTH = 100;
+
+    private static final int MAX_AGE = 150;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${demo.bulk-import.chunk-size:500}")
+    private int defaultChunkSize;
+
+    @Value("${demo.bulk-import.max-chunk-size:5000}")
+    private int maxChunkSize;
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    /**
+     * 导入结果回调 - 每行成功或失败都会回调一次，由调用方决定如何输出
+     */
+    public interface ResultSink {
+
+        void created(long line, User user) throws IOException;
+
+        void failed(long line, String error) throws IOException;
+
+        /**
+         * 每块处理完毕后回调，便于调用方及时刷出响应
+         */
+        default void chunkDone() throws IOException {
+        }
+    }
+
+    /**
+     * 导入统计
+     */
+    public record ImportSummary(long lines, long created, long failed, long chunks, long elapsedMs) {
+    }
+
+    public int resolveChunkSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultChunkSize;
+        }
+        return Math.min(requested, maxChunkSize);
+    }
+
+    public ImportSummary importUsers(BufferedReader reader, Format format, int chunkSize, ResultSink sink) throws IOException {
+        long start = System.currentTimeMillis();
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+        long lineNo = 0;
+        long created = 0;
+        long failed = 0;
+        long chunks = 0;
+
+        CsvReader csv = format == Format.CSV ? new CsvReader(reader) : null;
+        CsvColumns columns = CsvColumns.POSITIONAL;
+        boolean first = true;
+        while (true) {
+            User user;
+            try {
+                if (csv != null) {
+                    List<String> fields = csv.next();
+                    if (fields == null) {
+                        break;
+                    }
+                    lineNo = csv.recordLine();
+                    if (fields.size() == 1 && fields.get(0).isBlank()) {
+                        continue;
+                    }
+                    if (first) {
+                        first = false;
+                        CsvColumns header = CsvColumns.detect(fields);
+                        if (header != null) {
+                            columns = header;
+                            continue;
+                        }
+                    }
+                    user = parseCsv(fields, columns);
+                } else {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+                    lineNo++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    user = parseJson(line);
+                }
+                validate(user);
+            } catch (CsvReader.UnterminatedQuoteException e) {
+                // 未闭合的引号吞掉了之后的全部内容，无法继续
+                sink.failed(csv.recordLine(), e.getMessage());
+                failed++;
+                break;
+            } catch (IllegalArgumentException | JsonProcessingException e) {
+                sink.failed(lineNo, e.getMessage());
+                failed++;
+                continue;
+            }
+            chunk.add(new PendingRow(lineNo, user));
+            if (chunk.size() >= chunkSize) {
+                int inserted = flush(chunk, sink);
+                created += inserted;
+                failed += chunk.size() - inserted;
+                chunks++;
+                chunk.clear();
+            }
+        }
+        if (csv != null) {
+            lineNo = csv.lastLine();
+        }
+        if (!chunk.isEmpty()) {
+            int inserted = flush(chunk, sink);
+            created += inserted;
+            failed += chunk.size() - inserted;
+            chunks++;
+        }
+        return new ImportSummary(lineNo, created, failed, chunks, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 写入一块，返回成功行数
+     */
+    private int flush(List<PendingRow> chunk, ResultSink sink) throws IOException {
+        List<User> users = new ArrayList<>(chunk.size());
+        for (PendingRow row : chunk) {
+            users.add(row.user());
+        }
+        int inserted;
+        try {
+            userService.createUsers(users);
+            for (PendingRow row : chunk) {
+                sink.created(row.line(), row.user());
+            }
+            inserted = chunk.size();
+        } catch (RuntimeException batchError) {
+            // 整块已回滚，逐行重试以找出具体出错的行
+            inserted = 0;
+            for (PendingRow row : chunk) {
+                User user = row.user();
+                try {
+                    User saved = userService.createUser(user.getUsername(), user.getEmail(), user.getAge());
+                    sink.created(row.line(), saved);
+                    inserted++;
+                } catch (RuntimeException rowError) {
+                    sink.failed(row.line(), rootMessage(rowError));
+                }
+            }
+        }
+        sink.chunkDone();
+        return inserted;
+    }
+
+    private String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private User parseJson(String line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("不是JSON对象");
+        }
+        JsonNode ageNode = node.get("age");
+        if (ageNode == null || ageNode.isNull()) {
+            throw new IllegalArgumentException("age不能为空");
+        }
+        int age;
+        if (ageNode.isIntegralNumber() && ageNode.canConvertToInt()) {
+            age = ageNode.intValue();
+        } else if (ageNode.isTextual()) {
+            age = parseAge(ageNode.asText());
+        } else {
+            throw new IllegalArgumentException("age不是整数: " + ageNode);
+        }
+        return new User(text(node, "username"), text(node, "email"), age);
+    }
+
+    private User parseCsv(List<String> fields, CsvColumns columns) {
+        if (columns.age() < 0) {
+            throw new IllegalArgumentException("CSV表头缺少age列");
+        }
+        if (fields.size() <= columns.max()) {
+            throw new IllegalArgumentException("CSV列数不足，需要 " + columns.describe());
+        }
+        return new User(fields.get(columns.username()).trim(), fields.get(columns.email()).trim(),
+                parseAge(fields.get(columns.age())));
+    }
+
+    private int parseAge(String value) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException("age不能为空");
+        }
+        int age;
+        try {
+            age = Integer.parseInt(trimmed);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("age不是整数: " + trimmed);
+        }
+        if (age < 0 || age > MAX_AGE) {
+            throw new IllegalArgumentException("age超出范围(0-" + MAX_AGE + "): " + age);
+        }
+        return age;
+    }
+
+    private String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private record PendingRow(long line, User user) {
+    }
+
+    /**
+     * CSV列位置 - 来自表头，或无表头时的 username,email,age
+     */
+    private record CsvColumns(int username, int email, int age) {
+
+        static final CsvColumns POSITIONAL = new CsvColumns(0, 1, 2);
+
+        /**
+         * 首条记录同时含username和email列名时视为表头；表头缺少age列时仍按表头处理，各行因缺少age失败
+         */
+        static CsvColumns detect(List<String> fields) {
+            int username = -1;
+            int email = -1;
+            int age = -1;
+            for (int i = 0; i < fields.size(); i++) {
+                String name = fields.get(i).trim().toLowerCase(Locale.ROOT);
+                switch (name) {
+                    case "username" -> username = i;
+                    case "email" -> email = i;
+                    case "age" -> age = i;
+                    default -> {
+                    }
+                }
+            }
+            if (username < 0 || email < 0) {
+                return null;
+            }
+            return new CsvColumns(username, email, age);
+        }
+
+        int max() {
+            return Math.max(username, Math.max(email, age));
+        }
+
+        String describe() {
+            return this == POSITIONAL ? "username,email,age" : (max() + 1) + "列";
+        }
+    }
+
+    /**
+     * RFC 4180 CSV记录读取 - 引号内的逗号、换行和""转义，记录可跨多行；行号从1开始
+     */
+    static final class CsvReader {
+
+        private final BufferedReader reader;
+
+        /** 已读取的物理行数 */
+        private long line;
+
+        /** 当前记录起始的物理行号 */
+        private long recordLine;
+
+        CsvReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * 读取下一条记录，输入结束时返回null
+         */
+        List<String> next() throws IOException {
+            String text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i >= text.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // 引号内换行，记录延续到下一行
+                    String more = reader.readLine();
+                    if (more == null) {
+                        throw new UnterminatedQuoteException(recordLine);
+                    }
+                    line++;
+                    field.append('\n');
+                    text = more;
+                    i = 0;
+                    continue;
+                }
+                char c = text.charAt(i++);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < text.length() && text.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.toString().isBlank()) {
+                    // 引号前的空白不属于字段内容
+                    field.setLength(0);
+                    quoted = true;
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        long recordLine() {
+            return recordLine;
+        }
+
+        long lastLine() {
+            return line;
+        }
+
+        static final class UnterminatedQuoteException extends IllegalArgumentException {
+
+            private static final long serialVersionUID = 1L;
+
+            UnterminatedQuoteException(long line) {
+                super("第" + line + "行开始的引号字段没有闭合");
+            }
+        }
+    }
+
+    private void validate(User user) {
+        if (user.getUsername() == null || user.getUsername().isEmpty()) {
+            throw new IllegalArgumentException("username不能为空");
+        }
+        if (user.getUsername().length() > MAX_USERNAME_LENGTH) {
+            throw new IllegalArgumentException("username超过" + MAX_USERNAME_LENGTH + "个字符");
+        }
+        if (user.getEmail() == null || user.getEmail().isEmpty()) {
+            throw new IllegalArgumentException("email不能为空");
+        }
+        if (user.getEmail().length() > MAX_EMAIL_LENGTH) {
+            throw new IllegalArgumentException("email超过" + MAX_EMAIL_LENGTH + "个字符");
+        }
+    }
+}
@@ -2,34 +2,106 @@ package com.demo.readwrite.service;
 
 import com.demo.readwrite.entity.User;
 import com.demo.readwrite.mapper.UserMapper;
+import com.demo.readwrite.routing.ReadYourWritesContext;
+import com.demo.readwrite.trace.RoutingTracer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.util.*;
 
 /**
  * 用户业务Service - 使用ShardingSphere自动读写分离
+ * 读操作经过ReadYourWritesContext，客户端刚写入过时在一致性窗口内改读主库
+ * 每个操作的实际数据源和耗时通过RoutingTracer采样记录
  */
 @Service
 public class UserService {
 
     @Autowired
     private UserMapper userMapper;
+
+    @Autowired
+    private RoutingTracer tracer;
+
+    @Autowired
+    private UserAggregates aggregates;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserBatchLoader batchLoader;
+
+    @Autowired
+    private UserWriteBehind writeBehind;
+
+    @Autowired
+    private UsernameIndex usernameIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
     
     /**
      * 查询所有用户 - 自动路由到SLAVE
      */
     public List<User> findAllUsers() {
-        System.out.println("📖 [SLAVE-DB] 查询所有用户 - ShardingSphere自动路由到从库");
-        return userMapper.selectList(100);
+        long start = System.nanoTime();
+        List<User> result = ReadYourWritesContext.read(() -> userMapper.selectList(100));
+        tracer.read("SELECT_ALL_USERS", start);
+        return result;
+    }
+    
+    /**
+     * 按ID键集分页查询用户 - 自动路由到SLAVE，使用主键范围扫描，任意页的代价与第一页相同
+     */
+    public List<User> findUsersAfter(long afterId, int limit) {
+        long start = System.nanoTime();
+        List<User> result = ReadYourWritesContext.read(() -> userMapper.selectPageAfterId(afterId, limit));
+        tracer.read("SELECT_USERS_PAGE", start);
+        return result;
     }
     
     /**
-     * 根据ID查询用户 - 自动路由到SLAVE  
+     * 根据ID查询用户 - 有尚未写入的延迟更新时返回待写值；否则先查UserCache，未命中时经UserBatchLoader与并发的查询合并，自动路由到SLAVE  
      */
     public User findUserById(Long id) {
-        System.out.println("📖 [SLAVE-DB] 根据ID查询用户: " + id + " - ShardingSphere自动路由到从库");
-        return userMapper.selectById(id);
+        long start = System.nanoTime();
+        User pending = writeBehind.pending(id);
+        if (pending != null) {
+            tracer.record("SELECT_USER_BY_ID", RoutingTracer.WRITE_BEHIND, start);
+            return pending;
+        }
+        boolean[] loaded = new boolean[1];
+        User result = userCache.getById(id, () -> {
+            loaded[0] = true;
+            if (ReadYourWritesContext.isMasterRead()) {
+                return ReadYourWritesContext.read(() -> userMapper.selectById(id));
+            }
+            return batchLoader.load(id);
+        });
+        traceCached("SELECT_USER_BY_ID", loaded[0], start);
+        return result;
+    }
+
+    /**
+     * 按ID批量查询用户 - 先查UserCache，未命中的ID合并为IN查询，自动路由到SLAVE
+     * 按请求顺序返回，重复和不存在的ID被忽略；有尚未写入的延迟更新的ID返回待写值
+     */
+    public List<User> findUsersByIds(List<Long> ids) {
+        long start = System.nanoTime();
+        Map<Long, User> found = userCache.getAllById(ids,
+                missing -> ReadYourWritesContext.read(() -> batchLoader.loadAll(missing)));
+        List<User> result = new ArrayList<>(found.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            User pending = writeBehind.pending(id);
+            User user = pending != null ? pending : found.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        tracer.read("SELECT_USERS_BY_IDS", start);
+        return result;
     }
     
     /**
@@ -37,58 +109,192 @@ public class UserService {
      */
     @Transactional
     public User createUser(String username, String email, Integer age) {
-        System.out.println("✍️ [MASTER-DB] 创建用户: " + username + " - ShardingSphere自动路由到主库");
+        long start = System.nanoTime();
         User user = new User(username, email, age);
         userMapper.insert(user);
+        aggregates.recordInsert(user);
+        usernameIndex.put(user.getId(), username);
+        ReadYourWritesContext.markWritten();
+        tracer.write("INSERT_USER", start);
         return user;
     }
     
     /**
-     * 更新用户 - 自动路由到MASTER
+     * 批量创建用户 - 单条多行INSERT，自动路由到MASTER，生成的ID回填到每个User
      */
     @Transactional
+    public int createUsers(List<User> users) {
+        long start = System.nanoTime();
+        int rows = userMapper.insertBatch(users);
+        aggregates.recordInserts(users);
+        usernameIndex.putAll(users);
+        ReadYourWritesContext.markWritten();
+        tracer.write("BATCH_INSERT_USERS", start);
+        return rows;
+    }
+    
+    /**
+     * 更新用户 - 自动路由到MASTER，提交后把新值写入UserCache；修改前的行(用于维护聚合、失效旧用户名)优先取UserCache中已有的实体，未缓存时在事务内读取
+     * 不加行锁：并发修改同一用户或缓存中的值已被其他实例改旧时，聚合可能出现偏差，由定期校准纠正
+     * 开启延迟写入(demo.write-behind.enabled)时只登记到UserWriteBehind，不开启事务，由其定时批量写入主库
+     */
     public User updateUser(Long id, String username, String email, Integer age) {
-        System.out.println("✍️ [MASTER-DB] 更新用户: " + id + " - ShardingSphere自动路由到主库");
+        long start = System.nanoTime();
         User user = new User();
         user.setId(id);
         user.setUsername(username);
         user.setEmail(email);
         user.setAge(age);
         user.setStatus(1);
-        userMapper.update(user);
+        if (writeBehind.isEnabled()) {
+            writeBehind.submit(user);
+            ReadYourWritesContext.markWritten();
+            tracer.record("UPDATE_USER", RoutingTracer.WRITE_BEHIND, start);
+            return user;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            User before = loadBefore(id);
+            if (userMapper.update(user) > 0 && before != null) {
+                aggregates.recordUpdate(before, user);
+                userCache.put(afterUpdate(before, user), before.getUsername());
+                if (!username.equals(before.getUsername())) {
+                    usernameIndex.put(id, username);
+                }
+            }
+        });
+        ReadYourWritesContext.markWritten();
+        tracer.write("UPDATE_USER", start);
         return user;
     }
     
     /**
-     * 删除用户 - 自动路由到MASTER
+     * 删除用户 - 自动路由到MASTER，被删除的行(用于维护聚合)的取法与更新相同
+     * 提交后丢弃该用户尚未写入的延迟更新
      */
     @Transactional
     public int deleteUser(Long id) {
-        System.out.println("✍️ [MASTER-DB] 删除用户: " + id + " - ShardingSphere自动路由到主库");
-        return userMapper.deleteById(id);
+        long start = System.nanoTime();
+        User before = loadBefore(id);
+        int rows = userMapper.deleteById(id);
+        if (rows > 0 && before != null) {
+            aggregates.recordDelete(before);
+            userCache.invalidate(id, before.getUsername());
+            usernameIndex.remove(id);
+        }
+        writeBehind.discard(id);
+        ReadYourWritesContext.markWritten();
+        tracer.write("DELETE_USER", start);
+        return rows;
     }
     
     /**
-     * 统计用户总数 - 自动路由到SLAVE
+     * 更新后的完整行 - 未修改的列取自修改前的行；updated_at由数据库生成，置空
+     */
+    static User afterUpdate(User before, User change) {
+        User after = new User(change.getUsername(), change.getEmail(), change.getAge());
+        after.setId(change.getId());
+        after.setStatus(change.getStatus());
+        after.setCreatedAt(before.getCreatedAt());
+        return after;
+    }
+
+    /**
+     * 修改前的行 - UserCache中已有时直接使用，不再访问主库；否则在当前事务内读取(路由到主库)
+     */
+    private User loadBefore(Long id) {
+        User cached = userCache.peek(id);
+        return cached != null ? cached : userMapper.selectById(id);
+    }
+
+    /**
+     * 统计用户总数 - 读取进程内增量聚合，常数时间；聚合未就绪时回源SLAVE执行COUNT(*)
      */
     public int countUsers() {
-        System.out.println("📖 [SLAVE-DB] 统计用户总数 - ShardingSphere自动路由到从库");
-        return userMapper.count();
+        long start = System.nanoTime();
+        if (aggregates.isReady()) {
+            int result = (int) aggregates.getTotal();
+            tracer.record("COUNT_USERS", RoutingTracer.AGGREGATES, start);
+            return result;
+        }
+        int result = ReadYourWritesContext.read(() -> userMapper.count());
+        tracer.read("COUNT_USERS", start);
+        return result;
+    }
+
+    /**
+     * 用户统计 - 总数、各状态人数、年龄分布及校准偏差
+     */
+    public Map<String, Object> getUserStats() {
+        return aggregates.stats();
     }
     
     /**
-     * 根据用户名查询用户 - 自动路由到SLAVE
+     * 根据用户名查询用户 - 先查UserCache，未命中时自动路由到SLAVE
      */
     public User findUserByUsername(String username) {
-        System.out.println("📖 [SLAVE-DB] 根据用户名查询用户: " + username + " - ShardingSphere自动路由到从库");
-        return userMapper.selectByUsername(username);
+        long start = System.nanoTime();
+        boolean[] loaded = new boolean[1];
+        User result = userCache.getByUsername(username, () -> {
+            loaded[0] = true;
+            return ReadYourWritesContext.read(() -> userMapper.selectByUsername(username));
+        });
+        traceCached("SELECT_USER_BY_USERNAME", loaded[0], start);
+        return result;
+    }
+
+    /**
+     * 用户名前缀联想 - 命中进程内用户名前缀索引；索引未就绪时回源SLAVE执行 LIKE 'prefix%'
+     * 索引反映本实例已提交的写入，其他实例的写入在下次重建后可见
+     */
+    public List<UsernameIndex.Match> suggestUsernames(String prefix, int limit) {
+        long start = System.nanoTime();
+        if (usernameIndex.isReady()) {
+            List<UsernameIndex.Match> result = usernameIndex.lookup(prefix, limit);
+            tracer.record("SUGGEST_USERNAMES", RoutingTracer.USERNAME_INDEX, start);
+            return result;
+        }
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        List<User> users = ReadYourWritesContext.read(() -> userMapper.selectByUsernamePrefix(pattern, limit));
+        List<UsernameIndex.Match> result = new ArrayList<>(users.size());
+        for (User user : users) {
+            result.add(new UsernameIndex.Match(user.getId(), user.getUsername()));
+        }
+        tracer.read("SUGGEST_USERNAMES", start);
+        return result;
+    }
+
+    /**
+     * 缓存命中记为user-cache，本线程执行了加载时按实际读库记录；等待其他线程加载的也记为命中
+     */
+    private void traceCached(String operation, boolean loaded, long start) {
+        if (loaded) {
+            tracer.read(operation, start);
+        } else {
+            tracer.record(operation, RoutingTracer.USER_CACHE, start);
+        }
     }
     
     /**
      * 根据状态查询用户 - 自动路由到SLAVE
      */
     public List<User> findUsersByStatus(Integer status) {
-        System.out.println("📖 [SLAVE-DB] 根据状态查询用户: " + status + " - ShardingSphere自动路由到从库");
-        return userMapper.selectByStatus(status, 50);
+        long start = System.nanoTime();
+        List<User> result = ReadYourWritesContext.read(() -> userMapper.selectByStatus(status, 50));
+        tracer.read("SELECT_USERS_BY_STATUS", start);
+        return result;
+    }
+    
+    /**
+     * 状态feed键集分页 - 自动路由到SLAVE，按 (created_at, id) 倒序，cursor为空时返回第一页
+     * 依赖索引 idx_status_created_id (status, created_at, id)
+     */
+    public List<User> findUsersByStatusPage(Integer status, KeysetCursor cursor, int limit) {
+        long start = System.nanoTime();
+        List<User> result = cursor == null
+                ? ReadYourWritesContext.read(() -> userMapper.selectByStatus(status, limit))
+                : ReadYourWritesContext.read(
+                        () -> userMapper.selectByStatusBefore(status, cursor.createdAt(), cursor.id(), limit));
+        tracer.read("SELECT_USER_FEED_BY_STATUS", start);
+        return result;
     }
 }
\ No newline at end of file
@@ -0,0 +1,310 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.User;
+import com.demo.readwrite.mapper.UserMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 用户更新延迟写入(write-behind) - 同一用户的高频更新在内存中合并，定时以JDBC批量写入主库
+ *
+ * 1. 每个用户ID只保留最新一次待写状态，后到的覆盖先到的(last-writer-wins)
+ * 2. 独立的写入线程每 flush-interval-ms 写入一次，不占用@Scheduled共用的调度线程：
+ *    一个事务内先 SELECT ... IN (...) FOR UPDATE 取修改前的行维护聚合，再用BATCH执行器批量UPDATE；
+ *    提交后把新值写入缓存，并只移除未被更新覆盖的待写项
+ * 3. 某批失败时逐行重试(与UserImportService相同)：数据库不可用(连接失败、事务无法开始、可重试的异常)时保留全部待写项，
+ *    下次再写；其余异常(数据超长、约束冲突等)说明该行本身写不进去，记录ERROR日志(含完整的待写值)后丢弃，
+ *    不会让一行坏数据卡住整批、每次写入都失败
+ * 4. 待写数量达到 max-pending 时由提交线程先同步写入，写入失败时异常抛给调用方，内存中的待写项不会无限增长
+ * 5. 关闭时停止写入线程，再同步写完全部待写项
+ * 6. 待写期间按ID读取(findUserById / findUsersByIds)返回待写值；按用户名、分页等查询在写入后才可见
+ * 7. 删除用户时在事务提交后丢弃其待写项，已删除的用户不会经待写值重新出现，之后的写入也不再UPDATE不存在的行
+ *
+ * 持久性边界：进程异常退出时丢失的是全部尚未提交的待写项。写入正常时约为最近 flush-interval-ms 加一次写入耗时内的更新；
+ * 主库不可用、写入持续失败时待写项一直保留，时间上没有上限，数量上最多 max-pending 个用户。
+ * 默认关闭，demo.write-behind.enabled=true 时 UserService.updateUser 改为登记到这里。
+ * 更新不存在的ID时，写入前按ID读取会返回待写值，写入后为null。
+ */
+@Component
+public class UserWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(UserWriteBehind.class);
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserAggregates aggregates;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UsernameIndex usernameIndex;
+
+    @Value("${demo.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${demo.write-behind.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${demo.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${demo.write-behind.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    /** 用户ID -> 最新待写状态 */
+    private final Map<Long, User> pending = new ConcurrentHashMap<>();
+
+    /** 同一时间只有一个线程写入，避免旧状态的批次晚于新状态提交 */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private SqlSessionTemplate batchTemplate;
+
+    private UserMapper batchMapper;
+
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            batchTemplate = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+            batchMapper = batchTemplate.getMapper(UserMapper.class);
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "write-behind-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::scheduledFlush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 登记一次更新，覆盖同一用户尚未写入的状态
+     * 待写数量已达上限且是新的用户时，先同步写入已有的待写项；写入失败时本次更新不登记，异常抛给调用方
+     */
+    public void submit(User user) {
+        if (pending.size() >= maxPending && !pending.containsKey(user.getId())) {
+            flush();
+        }
+        submitted.incrementAndGet();
+        if (pending.put(user.getId(), user) != null) {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    /**
+     * 该用户尚未写入的最新状态，没有时返回null
+     */
+    public User pending(Long id) {
+        return enabled ? pending.get(id) : null;
+    }
+
+    /**
+     * 丢弃该用户尚未写入的更新 - 事务提交后生效(回滚时待写项保留)；在flushLock上执行，进行中的写入结束后才移除
+     */
+    public void discard(Long id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            flushLock.lock();
+            try {
+                if (pending.remove(id) != null) {
+                    discarded.incrementAndGet();
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        });
+    }
+
+    private void scheduledFlush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("延迟写入失败，{}条更新留待下次写入: {}", pending.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+        if (pending.isEmpty()) {
+            return;
+        }
+        int rows = flush();
+        log.info("关闭前写入待写用户更新 {} 条", rows);
+    }
+
+    /**
+     * 写入开始时已登记的全部更新，按batch-size分批，每批一个事务；返回写入的条数，不含丢弃的行
+     * 数据库不可用时抛出异常，已写入的批次照常移除，其余留待下次写入
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            int total = 0;
+            int rounds = (pending.size() + batchSize - 1) / batchSize;
+            for (int round = 0; round < rounds && !pending.isEmpty(); round++) {
+                List<User> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+                for (User user : pending.values()) {
+                    batch.add(user);
+                    if (batch.size() >= batchSize) {
+                        break;
+                    }
+                }
+                // 按ID顺序加锁，与其他批次和单条写入的加锁顺序一致
+                batch.sort(Comparator.comparing(User::getId));
+                try {
+                    write(batch);
+                    for (User user : batch) {
+                        pending.remove(user.getId(), user);
+                    }
+                    total += batch.size();
+                } catch (RuntimeException batchError) {
+                    if (isUnavailable(batchError)) {
+                        throw batchError;
+                    }
+                    total += writeRows(batch);
+                }
+            }
+            return total;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 整批已回滚，逐行写入找出写不进去的行并丢弃；返回写入的条数
+     */
+    private int writeRows(List<User> batch) {
+        int written = 0;
+        for (User user : batch) {
+            try {
+                write(List.of(user));
+                written++;
+            } catch (RuntimeException rowError) {
+                if (isUnavailable(rowError)) {
+                    throw rowError;
+                }
+                deadLettered.incrementAndGet();
+                log.error("延迟写入丢弃无法写入的用户更新 {}: {}", user, rowError.toString());
+            }
+            pending.remove(user.getId(), user);
+        }
+        return written;
+    }
+
+    /**
+     * 连接失败、事务无法开始、死锁/超时等可重试的异常，与具体的行无关
+     */
+    private static boolean isUnavailable(RuntimeException error) {
+        return error instanceof TransientDataAccessException
+                || error instanceof RecoverableDataAccessException
+                || error instanceof DataAccessResourceFailureException
+                || error instanceof CannotCreateTransactionException;
+    }
+
+    private void write(List<User> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Long> ids = new ArrayList<>(batch.size());
+                for (User user : batch) {
+                    ids.add(user.getId());
+                }
+                Map<Long, User> before = new HashMap<>(batch.size() * 2);
+                for (User user : batchMapper.selectByIdsForUpdate(UserBatchLoader.padded(ids))) {
+                    before.put(user.getId(), user);
+                }
+                for (User user : batch) {
+                    batchMapper.update(user);
+                }
+                batchTemplate.flushStatements();
+                for (User user : batch) {
+                    User previous = before.get(user.getId());
+                    if (previous != null) {
+                        aggregates.recordUpdate(previous, user);
+                        userCache.put(UserService.afterUpdate(previous, user), previous.getUsername());
+                        if (!user.getUsername().equals(previous.getUsername())) {
+                            usernameIndex.put(user.getId(), user.getUsername());
+                        }
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            throw e;
+        }
+        batches.incrementAndGet();
+        flushedRows.addAndGet(batch.size());
+        flushNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    public Map<String, Object> stats() {
+        long batchCount = batches.get();
+        long submittedCount = submitted.get();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("max_pending", maxPending);
+        result.put("batch_size", batchSize);
+        result.put("pending", pending.size());
+        result.put("submitted", submittedCount);
+        result.put("coalesced", coalesced.get());
+        result.put("coalesce_ratio", submittedCount > 0 ? (double) coalesced.get() / submittedCount : 0);
+        result.put("flushed_rows", flushedRows.get());
+        result.put("batches", batchCount);
+        result.put("failures", failures.get());
+        result.put("dead_lettered", deadLettered.get());
+        result.put("discarded", discarded.get());
+        result.put("average_batch_ms", batchCount > 0
+                ? (double) TimeUnit.NANOSECONDS.toMicros(flushNanos.get()) / batchCount / 1000 : 0);
+        return result;
+    }
+}
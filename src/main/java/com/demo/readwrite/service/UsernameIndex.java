@@ -0,0 +1,685 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.User;
+import com.demo.readwrite.mapper.UserMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * 用户名前缀索引 - 进程内的紧凑有序索引，支撑输入联想(type-ahead)，不再向从库发送 LIKE 'abc%'
+ *
+ * 1. 基础层：全部用户名的比较键(见下)按UTF-8字节排序后首尾相接存放在一个byte[]中，另有int[]偏移和long[]用户ID；
+ *    原始用户名只在与比较键不同时另存一份。全小写ASCII的用户名每个约占 用户名字节数 + 16 字节，
+ *    平均12字节的用户名每百万用户约28MB；不为每个用户分配对象
+ * 2. 前缀查询：前缀转换为比较键后二分查找下界，顺序取出以该前缀开头的前K个，只为返回的K个解码字符串
+ * 3. 增量层：提交后的新增、改名记入按相同顺序排列的跳表，删除和改名记入基础层的墓碑(按用户ID)；
+ *    查询时归并两层并跳过墓碑。增量达到 compact-threshold 后在后台线性合并为新的基础层；合并基于增量层的快照、不持锁，
+ *    合并期间的本地变更在发布新基础层时重放
+ * 4. 启动后在后台线程上流式读取从库建立基础层，不阻塞启动；此后每 rebuild-interval-ms 重建一次，感知其他实例的写入。
+ *    重建期间以及重建开始前 replay-window-ms 内的本地变更会在新基础层上重放，弥补从库复制延迟
+ *
+ * 比较键近似users表的utf8mb4_unicode_ci：NFKD分解后去掉组合附加符号，再按Locale.ROOT做大小写折叠，
+ * 不区分大小写和重音(É=e，ß=ss，全角字符=半角字符)。这不是完整的UCA权重：可忽略字符、部分扩展和缩约的
+ * 排序与数据库可能不同，只影响联想结果的先后，不影响数据的正确性。返回原始用户名；比较键相同的按ID排序。
+ * 读路径无锁，读取volatile的当前状态；写入、合并和重建的发布在一把锁上串行。维护在独立线程上执行，不占用@Scheduled共用的调度线程。
+ * 就绪前UserService回源从库 LIKE 查询。
+ */
+@Component
+public class UsernameIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UsernameIndex.class);
+
+    /** NFKD分解出的组合附加符号(重音、变音等) */
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final byte[] NO_NAME = new byte[0];
+
+    private static final Comparator<Entry> ENTRY_ORDER = (a, b) -> {
+        int c = compareBytes(a.key, 0, a.key.length, b.key, 0, b.key.length);
+        return c != 0 ? c : Long.compare(a.id, b.id);
+    };
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Value("${demo.username-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${demo.username-index.maintain-interval-ms:5000}")
+    private long maintainIntervalMs;
+
+    @Value("${demo.username-index.rebuild-interval-ms:600000}")
+    private long rebuildIntervalMs;
+
+    @Value("${demo.username-index.compact-threshold:10000}")
+    private int compactThreshold;
+
+    @Value("${demo.username-index.replay-window-ms:10000}")
+    private long replayWindowMs;
+
+    private volatile State state;
+
+    private ScheduledExecutorService maintainer;
+
+    /** 写入、合并、重建发布在这把锁上串行 */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** 最近的本地变更，重建后重放；按时间裁剪，只由持锁线程访问 */
+    private final ArrayDeque<Change> recentChanges = new ArrayDeque<>();
+
+    /** 正在重建时为重建开始时间，只由持锁线程读写 */
+    private long rebuildStartedAt;
+
+    /** 正在合并时记录快照之后的本地变更，发布时重放；不在合并时为null，只由持锁线程访问 */
+    private List<Change> changesDuringCompaction;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong localChanges = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong rebuildFailures = new AtomicLong();
+
+    private volatile long lastRebuildMillis;
+    private volatile long lastRebuildElapsedMs;
+    private volatile String lastError;
+
+    /**
+     * 一条联想结果
+     */
+    public record Match(long id, String username) {
+    }
+
+    /**
+     * 在后台线程上立即建立一次，之后按 maintain-interval-ms 维护；建立完成前前缀查询回源数据库
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        maintainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "username-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintainer.scheduleWithFixedDelay(this::scheduledMaintain, 0, maintainIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (maintainer != null) {
+            maintainer.shutdownNow();
+        }
+    }
+
+    private void scheduledMaintain() {
+        // 异常会终止scheduleWithFixedDelay的后续执行，这里记录后继续下一周期
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.warn("用户名索引维护失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 定时维护 - 未建立或到期时从从库重建，否则增量过大时在内存中合并
+     */
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        if (state == null || System.currentTimeMillis() - lastRebuildMillis >= rebuildIntervalMs) {
+            rebuild();
+            return;
+        }
+        State current = state;
+        if (current.deltaById.size() + current.tombstones.size() >= compactThreshold) {
+            compact();
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && state != null;
+    }
+
+    /**
+     * 以prefix开头的前limit个用户名，按用户名排序
+     */
+    public List<Match> lookup(String prefix, int limit) {
+        lookups.incrementAndGet();
+        State current = state;
+        byte[] p = fold(prefix).getBytes(StandardCharsets.UTF_8);
+        Base base = current.base;
+        List<Match> result = new ArrayList<>(Math.min(limit, 64));
+
+        int i = base.lowerBound(p);
+        boolean checkTombstones = !current.tombstones.isEmpty();
+        Iterator<Entry> delta = current.delta.tailSet(new Entry(p, Long.MIN_VALUE, null)).iterator();
+        Entry nextDelta = nextMatching(delta, p);
+        while (result.size() < limit) {
+            while (checkTombstones && i < base.size && base.startsWith(i, p) && current.tombstones.contains(base.ids[i])) {
+                i++;
+            }
+            boolean baseHas = i < base.size && base.startsWith(i, p);
+            if (!baseHas && nextDelta == null) {
+                break;
+            }
+            if (nextDelta == null || (baseHas && base.compareTo(i, nextDelta) < 0)) {
+                result.add(new Match(base.ids[i], base.username(i)));
+                i++;
+            } else {
+                result.add(new Match(nextDelta.id, nextDelta.username));
+                nextDelta = nextMatching(delta, p);
+            }
+        }
+        return result;
+    }
+
+    private static Entry nextMatching(Iterator<Entry> delta, byte[] prefix) {
+        if (!delta.hasNext()) {
+            return null;
+        }
+        Entry entry = delta.next();
+        return startsWith(entry.key, 0, entry.key.length, prefix) ? entry : null;
+    }
+
+    /**
+     * 新增或改名 - 事务提交后生效
+     */
+    public void put(Long id, String username) {
+        if (enabled && id != null && username != null) {
+            AfterCommit.run(() -> change(new Change(System.currentTimeMillis(), id, username)));
+        }
+    }
+
+    public void putAll(List<User> users) {
+        if (!enabled) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            long now = System.currentTimeMillis();
+            for (User user : users) {
+                if (user.getId() != null && user.getUsername() != null) {
+                    change(new Change(now, user.getId(), user.getUsername()));
+                }
+            }
+        });
+    }
+
+    /**
+     * 删除 - 事务提交后生效
+     */
+    public void remove(Long id) {
+        if (enabled && id != null) {
+            AfterCommit.run(() -> change(new Change(System.currentTimeMillis(), id, null)));
+        }
+    }
+
+    private void change(Change change) {
+        lock.lock();
+        try {
+            recentChanges.addLast(change);
+            long expired = change.timestamp - replayWindowMs;
+            // 重建进行中(rebuildStartedAt > 0)时保留重建开始前replay窗口内的变更
+            long keepFrom = rebuildStartedAt > 0 ? Math.min(expired, rebuildStartedAt - replayWindowMs) : expired;
+            while (!recentChanges.isEmpty() && recentChanges.peekFirst().timestamp < keepFrom) {
+                recentChanges.pollFirst();
+            }
+            if (state != null) {
+                state.apply(change);
+            }
+            if (changesDuringCompaction != null) {
+                changesDuringCompaction.add(change);
+            }
+            localChanges.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 从从库流式读取全部用户名，建立新的基础层；读取期间不持锁，发布时重放最近的本地变更
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        lock.lock();
+        try {
+            rebuildStartedAt = start;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            Base base = load();
+            lock.lock();
+            try {
+                State next = new State(base);
+                long replayFrom = start - replayWindowMs;
+                for (Change change : recentChanges) {
+                    if (change.timestamp >= replayFrom) {
+                        next.apply(change);
+                    }
+                }
+                state = next;
+            } finally {
+                lock.unlock();
+            }
+            rebuilds.incrementAndGet();
+            lastRebuildMillis = System.currentTimeMillis();
+            lastRebuildElapsedMs = lastRebuildMillis - start;
+            lastError = null;
+            log.info("用户名索引已建立: {}个用户, {}KB, 耗时{}ms",
+                    base.size, base.memoryBytes() / 1024, lastRebuildElapsedMs);
+        } catch (RuntimeException e) {
+            rebuildFailures.incrementAndGet();
+            lastError = e.getMessage();
+            // 失败后等下个维护周期重试，不必等满重建间隔
+            lastRebuildMillis = 0;
+            log.warn("用户名索引建立失败，{}: {}", state != null ? "继续使用当前索引" : "前缀查询回源数据库", e.getMessage());
+        } finally {
+            lock.lock();
+            try {
+                rebuildStartedAt = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 流式读取(id, username)，读取顺序任意，读完后按索引顺序排序
+     * 与UserExportService一样不使用Spring事务(事务内的读会路由到主库)，直接打开自动提交的SqlSession走从库
+     */
+    private Base load() {
+        Base.Builder builder = new Base.Builder();
+        try (SqlSession session = sqlSessionFactory.openSession();
+             Cursor<User> cursor = session.getMapper(UserMapper.class).selectUsernamesCursor()) {
+            for (User user : cursor) {
+                builder.add(user.getId(), user.getUsername());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 把增量层和墓碑线性合并进基础层 - 持锁只取快照和发布，合并本身不阻塞写入；
+     * 合并期间另有重建发布了新状态时放弃本次结果
+     */
+    private void compact() {
+        State current;
+        NavigableSet<Entry> delta;
+        Set<Long> tombstones;
+        lock.lock();
+        try {
+            current = state;
+            if (current == null || changesDuringCompaction != null) {
+                return;
+            }
+            delta = new TreeSet<>(current.delta);
+            tombstones = new HashSet<>(current.tombstones);
+            changesDuringCompaction = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        Base merged = null;
+        try {
+            merged = current.base.merge(delta, tombstones);
+        } finally {
+            lock.lock();
+            try {
+                List<Change> since = changesDuringCompaction;
+                changesDuringCompaction = null;
+                if (merged != null && state == current) {
+                    State next = new State(merged);
+                    for (Change change : since) {
+                        next.apply(change);
+                    }
+                    state = next;
+                    compactions.incrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        State current = state;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("ready", isReady());
+        if (current != null) {
+            long bytes = current.base.memoryBytes();
+            result.put("base_entries", current.base.size);
+            result.put("base_memory_bytes", bytes);
+            result.put("bytes_per_user", current.base.size > 0 ? (double) bytes / current.base.size : 0);
+            result.put("delta_entries", current.deltaById.size());
+            result.put("tombstones", current.tombstones.size());
+        }
+        result.put("compact_threshold", compactThreshold);
+        result.put("rebuild_interval_ms", rebuildIntervalMs);
+        result.put("lookups", lookups.get());
+        result.put("local_changes", localChanges.get());
+        result.put("compactions", compactions.get());
+        result.put("rebuilds", rebuilds.get());
+        result.put("rebuild_failures", rebuildFailures.get());
+        long last = lastRebuildMillis;
+        result.put("last_rebuild_at", last > 0 ? new Date(last).toString() : null);
+        result.put("last_rebuild_elapsed_ms", lastRebuildElapsedMs);
+        result.put("last_error", lastError);
+        return result;
+    }
+
+    /**
+     * 比较键 - NFKD分解、去掉组合附加符号，再按Locale.ROOT转大写后转小写(ß -> SS -> ss)；纯ASCII只转小写
+     */
+    static String fold(String username) {
+        boolean ascii = true;
+        for (int k = 0; k < username.length() && ascii; k++) {
+            ascii = username.charAt(k) < 0x80;
+        }
+        if (ascii) {
+            return username.toLowerCase(Locale.ROOT);
+        }
+        String stripped = COMBINING_MARKS.matcher(Normalizer.normalize(username, Normalizer.Form.NFKD)).replaceAll("");
+        return stripped.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 按无符号字节比较，UTF-8下与码点顺序一致；较短的前缀排在前面
+     */
+    static int compareBytes(byte[] a, int aFrom, int aLen, byte[] b, int bFrom, int bLen) {
+        return Arrays.compareUnsigned(a, aFrom, aFrom + aLen, b, bFrom, bFrom + bLen);
+    }
+
+    static boolean startsWith(byte[] key, int from, int len, byte[] prefix) {
+        return len >= prefix.length && Arrays.equals(key, from, from + prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * 一次本地变更，username为null表示删除
+     */
+    private record Change(long timestamp, long id, String username) {
+    }
+
+    /**
+     * 增量层中的一项 - key为比较键的UTF-8字节
+     */
+    private record Entry(byte[] key, long id, String username) {
+
+        static Entry of(long id, String username) {
+            return new Entry(fold(username).getBytes(StandardCharsets.UTF_8), id, username);
+        }
+    }
+
+    /**
+     * 当前状态 - 基础层不可变；增量层和墓碑是并发集合，由持锁线程修改，读线程无锁遍历
+     */
+    private static final class State {
+
+        final Base base;
+
+        final ConcurrentSkipListSet<Entry> delta = new ConcurrentSkipListSet<>(ENTRY_ORDER);
+
+        final Map<Long, Entry> deltaById = new ConcurrentHashMap<>();
+
+        /** 基础层中已失效(删除或改名)的用户ID */
+        final Set<Long> tombstones = ConcurrentHashMap.newKeySet();
+
+        State(Base base) {
+            this.base = base;
+        }
+
+        /**
+         * 同一ID的变更按发生顺序应用，结果与重复应用次数无关，可以安全重放
+         */
+        void apply(Change change) {
+            // 先加新项再删旧项：并发的读线程在两者之间最多同时看到新旧两个名字，不会一个都看不到
+            Entry added = null;
+            if (change.username != null) {
+                added = Entry.of(change.id, change.username);
+                delta.add(added);
+            }
+            tombstones.add(change.id);
+            Entry previous = added != null ? deltaById.put(change.id, added) : deltaById.remove(change.id);
+            // 重放同一变更时新旧两项按排序相等，跳表中保留的就是同一位置，不能删除
+            if (previous != null && (added == null || ENTRY_ORDER.compare(previous, added) != 0)) {
+                delta.remove(previous);
+            }
+        }
+    }
+
+    /**
+     * 基础层 - 有序的比较键字节、偏移和ID，以及与比较键不同的原始用户名，构建后不再修改
+     */
+    private static final class Base {
+
+        final byte[] keys;
+
+        /** 第i个比较键为 keys[offsets[i], offsets[i+1]) */
+        final int[] offsets;
+
+        /** 第i个原始用户名为 names[nameOffsets[i], nameOffsets[i+1])，为空表示与比较键相同 */
+        final byte[] names;
+
+        final int[] nameOffsets;
+
+        final long[] ids;
+
+        final int size;
+
+        Base(byte[] keys, int[] offsets, byte[] names, int[] nameOffsets, long[] ids, int size) {
+            this.keys = keys;
+            this.offsets = offsets;
+            this.names = names;
+            this.nameOffsets = nameOffsets;
+            this.ids = ids;
+            this.size = size;
+        }
+
+        long memoryBytes() {
+            return keys.length + 4L * offsets.length + names.length + 4L * nameOffsets.length + 8L * ids.length;
+        }
+
+        String username(int i) {
+            int nameLength = nameOffsets[i + 1] - nameOffsets[i];
+            return nameLength > 0
+                    ? new String(names, nameOffsets[i], nameLength, StandardCharsets.UTF_8)
+                    : new String(keys, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+        }
+
+        boolean startsWith(int i, byte[] prefix) {
+            return UsernameIndex.startsWith(keys, offsets[i], offsets[i + 1] - offsets[i], prefix);
+        }
+
+        int compareTo(int i, Entry entry) {
+            int c = compareBytes(keys, offsets[i], offsets[i + 1] - offsets[i], entry.key, 0, entry.key.length);
+            return c != 0 ? c : Long.compare(ids[i], entry.id);
+        }
+
+        /** 第一个不小于prefix的位置 */
+        int lowerBound(byte[] prefix) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareBytes(keys, offsets[mid], offsets[mid + 1] - offsets[mid], prefix, 0, prefix.length) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * 与增量层归并：跳过墓碑中的ID，两路都已有序，线性时间
+         */
+        Base merge(NavigableSet<Entry> delta, Set<Long> tombstones) {
+            Builder builder = new Builder(size + delta.size());
+            Iterator<Entry> it = delta.iterator();
+            Entry next = it.hasNext() ? it.next() : null;
+            for (int i = 0; i < size; i++) {
+                if (tombstones.contains(ids[i])) {
+                    continue;
+                }
+                while (next != null && compareTo(i, next) > 0) {
+                    builder.add(next);
+                    next = it.hasNext() ? it.next() : null;
+                }
+                builder.add(ids[i], keys, offsets[i], offsets[i + 1] - offsets[i],
+                        names, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i]);
+            }
+            while (next != null) {
+                builder.add(next);
+                next = it.hasNext() ? it.next() : null;
+            }
+            return builder.buildSorted();
+        }
+
+        /**
+         * 追加式构建，数组按需倍增
+         */
+        static final class Builder {
+
+            private byte[] keys;
+
+            private int[] offsets;
+
+            private byte[] names;
+
+            private int[] nameOffsets;
+
+            private long[] ids;
+
+            private int size;
+
+            Builder() {
+                this(1024);
+            }
+
+            Builder(int capacity) {
+                capacity = Math.max(capacity, 16);
+                keys = new byte[capacity * 12];
+                offsets = new int[capacity + 1];
+                names = new byte[64];
+                nameOffsets = new int[capacity + 1];
+                ids = new long[capacity];
+            }
+
+            void add(long id, String username) {
+                String key = fold(username);
+                byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                byte[] nameBytes = key.equals(username) ? NO_NAME : username.getBytes(StandardCharsets.UTF_8);
+                add(id, keyBytes, 0, keyBytes.length, nameBytes, 0, nameBytes.length);
+            }
+
+            void add(Entry entry) {
+                byte[] nameBytes = entry.username.getBytes(StandardCharsets.UTF_8);
+                if (Arrays.equals(entry.key, nameBytes)) {
+                    nameBytes = NO_NAME;
+                }
+                add(entry.id, entry.key, 0, entry.key.length, nameBytes, 0, nameBytes.length);
+            }
+
+            void add(long id, byte[] keySource, int keyFrom, int keyLen, byte[] nameSource, int nameFrom, int nameLen) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    offsets = Arrays.copyOf(offsets, size * 2 + 1);
+                    nameOffsets = Arrays.copyOf(nameOffsets, size * 2 + 1);
+                }
+                int keyEnd = offsets[size];
+                keys = ensureCapacity(keys, keyEnd + keyLen);
+                System.arraycopy(keySource, keyFrom, keys, keyEnd, keyLen);
+                offsets[size + 1] = keyEnd + keyLen;
+                int nameEnd = nameOffsets[size];
+                names = ensureCapacity(names, nameEnd + nameLen);
+                System.arraycopy(nameSource, nameFrom, names, nameEnd, nameLen);
+                nameOffsets[size + 1] = nameEnd + nameLen;
+                ids[size] = id;
+                size++;
+            }
+
+            private static byte[] ensureCapacity(byte[] array, int needed) {
+                return needed > array.length ? Arrays.copyOf(array, Math.max(array.length * 2, needed)) : array;
+            }
+
+            /** 已按索引顺序追加，只裁剪数组 */
+            Base buildSorted() {
+                return new Base(Arrays.copyOf(keys, offsets[size]), Arrays.copyOf(offsets, size + 1),
+                        Arrays.copyOf(names, nameOffsets[size]), Arrays.copyOf(nameOffsets, size + 1),
+                        Arrays.copyOf(ids, size), size);
+            }
+
+            /** 按(用户名, ID)排序后生成紧凑数组 */
+            Base build() {
+                int[] order = new int[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                sort(order, new int[size], 0, size);
+                Builder sorted = new Builder(size);
+                for (int i : order) {
+                    sorted.add(ids[i], keys, offsets[i], offsets[i + 1] - offsets[i],
+                            names, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i]);
+                }
+                return sorted.buildSorted();
+            }
+
+            private int compare(int a, int b) {
+                int c = compareBytes(keys, offsets[a], offsets[a + 1] - offsets[a],
+                        keys, offsets[b], offsets[b + 1] - offsets[b]);
+                return c != 0 ? c : Long.compare(ids[a], ids[b]);
+            }
+
+            /** 在int[]上归并排序，避免为百万级下标装箱 */
+            private void sort(int[] order, int[] buffer, int from, int to) {
+                if (to - from < 2) {
+                    return;
+                }
+                int mid = (from + to) >>> 1;
+                sort(order, buffer, from, mid);
+                sort(order, buffer, mid, to);
+                if (compare(order[mid - 1], order[mid]) <= 0) {
+                    return;
+                }
+                System.arraycopy(order, from, buffer, from, to - from);
+                int left = from;
+                int right = mid;
+                for (int k = from; k < to; k++) {
+                    if (right >= to || (left < mid && compare(buffer[left], buffer[right]) <= 0)) {
+                        order[k] = buffer[left++];
+                    } else {
+                        order[k] = buffer[right++];
+                    }
+                }
+            }
+        }
+    }
+}
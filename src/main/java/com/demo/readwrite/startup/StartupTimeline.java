@@ -0,0 +1,85 @@
+package com.demo.readwrite.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 启动时间线 - 从JVM启动算起，上下文刷新完成、启动预热完成、报告就绪各用了多久
+ *
+ * 1. started: 上下文刷新完成(Bean、连接池、Web服务器已创建)，ApplicationRunner尚未执行
+ * 2. warmup: StartupWarmup各任务的耗时，未开启预热时为空
+ * 3. ready: ApplicationRunner执行完毕，随后Readiness切换为ACCEPTING_TRAFFIC
+ * 4. primed: 所有连接池都借到过连接，startupWarmup健康检查从此返回UP；预热超时或连接失败时晚于ready
+ */
+@Component
+public class StartupTimeline {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimeline.class);
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private final Map<String, Object> warmupTasks = new LinkedHashMap<>();
+
+    private volatile long startedMillis = -1;
+
+    private volatile long warmupMillis = -1;
+
+    private volatile long readyMillis = -1;
+
+    private volatile long primedMillis = -1;
+
+    @EventListener
+    public void onStarted(ApplicationStartedEvent event) {
+        startedMillis = System.currentTimeMillis() - jvmStartMillis;
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        readyMillis = System.currentTimeMillis() - jvmStartMillis;
+        log.info("启动完成: 上下文刷新 {}ms, 预热 {}ms, 就绪 {}ms (自JVM启动, cds={})",
+                startedMillis, Math.max(warmupMillis, 0), readyMillis, cdsEnabled());
+    }
+
+    synchronized void recordWarmupTask(String task, long millis, String failure) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("elapsed_ms", millis);
+        if (failure != null) {
+            entry.put("failure", failure);
+        }
+        warmupTasks.put(task, entry);
+    }
+
+    void recordWarmup(long millis) {
+        warmupMillis = millis;
+    }
+
+    void recordPrimed() {
+        primedMillis = System.currentTimeMillis() - jvmStartMillis;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("started_ms", startedMillis);
+        stats.put("warmup_ms", warmupMillis);
+        stats.put("ready_ms", readyMillis);
+        stats.put("primed_ms", primedMillis);
+        stats.put("warmup_tasks", new LinkedHashMap<>(warmupTasks));
+        stats.put("cds", cdsEnabled());
+        return stats;
+    }
+
+    /** 是否以AppCDS归档启动 - 看启动参数中是否指定了 -XX:SharedArchiveFile */
+    private static boolean cdsEnabled() {
+        return ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(arg -> arg.startsWith("-XX:SharedArchiveFile"));
+    }
+}
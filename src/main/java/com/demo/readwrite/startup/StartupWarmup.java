@@ -0,0 +1,249 @@
+package com.demo.readwrite.startup;
+
+import com.demo.readwrite.mapper.UserMapper;
+import com.demo.readwrite.routing.PhysicalDataSources;
+import com.demo.readwrite.service.ConfigStore;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.apache.shardingsphere.infra.hint.HintManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动预热 - 报告就绪之前并行填满各连接池、执行一遍热点Mapper语句
+ *
+ * 1. 每个Hikari连接池一个任务，同时借出 minimum-idle 个连接再归还，首批请求不再等待建连；
+ *    ShardingSphere和Baomidou内部的连接池在第一次借连接时才建立，只能这样显式填满
+ * 2. 用户读语句分别经负载均衡和HintManager强制主库各执行若干轮，预热ShardingSphere的SQL解析/路由缓存、
+ *    MyBatis语句和JDBC驱动的代码路径；配置库读语句经ConfigStore执行
+ * 3. 只执行读语句，不修改数据；预热查询同样计入语句指标
+ *
+ * ApplicationRunner全部执行完之后Spring Boot才把Readiness切换为ACCEPTING_TRAFFIC，
+ * 负载均衡按 /actuator/health/readiness 摘挂流量时，预热期间不会有请求进来。
+ * 本类同时是readiness组中的健康检查(startupWarmup)：还有连接池没借到过连接时返回OUT_OF_SERVICE，
+ * 超过 timeout-ms 或连接失败时启动照常完成，但readiness保持OUT_OF_SERVICE，
+ * 后台每 retry-interval-ms 重试一次，所有连接池都借到连接后才返回UP。
+ */
+@Component
+@ConditionalOnProperty(name = "demo.startup-warmup.enabled", havingValue = "true")
+public class StartupWarmup implements ApplicationRunner, HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    @Autowired
+    private ObjectProvider<DataSource> dataSources;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private ConfigStore configStore;
+
+    @Autowired
+    private StartupTimeline timeline;
+
+    @Value("${demo.startup-warmup.statement-rounds:50}")
+    private int statementRounds;
+
+    @Value("${demo.startup-warmup.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${demo.startup-warmup.retry-interval-ms:1000}")
+    private long retryIntervalMs;
+
+    /** 还没有成功借出过连接的连接池，为空时readiness才返回UP */
+    private final Map<String, HikariDataSource> unprimed = new ConcurrentHashMap<>();
+
+    private volatile boolean primed;
+
+    private volatile ScheduledExecutorService retryExecutor;
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        long start = System.nanoTime();
+        Map<String, Callable<?>> tasks = new LinkedHashMap<>();
+        pools().forEach((name, pool) -> {
+            unprimed.put(name, pool);
+            tasks.put("pool:" + name, () -> prime(name, pool));
+        });
+        tasks.put("statements:load_balanced", () -> repeat(this::readUsers));
+        tasks.put("statements:master", () -> repeat(this::readUsersOnMaster));
+        tasks.put("statements:config", () -> repeat(this::readConfig));
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), runnable -> {
+            Thread thread = new Thread(runnable, "startup-warmup-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletableFuture<?>[] futures = tasks.entrySet().stream()
+                    .map(task -> CompletableFuture.runAsync(() -> runTask(task.getKey(), task.getValue()), executor))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(futures).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("启动预热超过{}ms未完成，不再等待", timeoutMs);
+        } catch (ExecutionException e) {
+            log.warn("启动预热异常: {}", e.getCause().toString());
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        timeline.recordWarmup(elapsedMillis);
+        log.info("启动预热完成: {}个任务, 耗时{}ms", tasks.size(), elapsedMillis);
+        if (unprimed.isEmpty()) {
+            markPrimed();
+        } else {
+            log.warn("连接池 {} 尚未借到连接，readiness保持OUT_OF_SERVICE，每{}ms重试", unprimed.keySet(), retryIntervalMs);
+            retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "startup-warmup-retry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            retryExecutor.scheduleWithFixedDelay(this::retry, retryIntervalMs, retryIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Health health() {
+        if (primed) {
+            return Health.up().build();
+        }
+        return Health.outOfService().withDetail("unprimed_pools", unprimed.keySet()).build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (retryExecutor != null) {
+            retryExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 连接池名称 -> 连接池：两个路由数据源内部的连接池，加上直接注册为Bean的Hikari连接池(如spring.datasource)
+     */
+    private Map<String, HikariDataSource> pools() {
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        PhysicalDataSources.collect(dataSources).forEach((name, dataSource) -> {
+            if (dataSource instanceof HikariDataSource hikari) {
+                pools.put(name, hikari);
+            }
+        });
+        dataSources.orderedStream().forEach(dataSource -> {
+            if (dataSource instanceof HikariDataSource hikari) {
+                pools.putIfAbsent(hikari.getPoolName() != null ? hikari.getPoolName() : "default", hikari);
+            }
+        });
+        if (pools.isEmpty()) {
+            log.warn("未找到Hikari连接池，跳过连接池预热");
+        }
+        return pools;
+    }
+
+    private void retry() {
+        unprimed.forEach((name, pool) -> {
+            try {
+                prime(name, pool);
+                log.info("连接池 {} 重试借连接成功", name);
+            } catch (SQLException e) {
+                log.debug("连接池 {} 重试借连接失败: {}", name, e.toString());
+            }
+        });
+        if (unprimed.isEmpty()) {
+            markPrimed();
+            retryExecutor.shutdown();
+        }
+    }
+
+    private void markPrimed() {
+        primed = true;
+        timeline.recordPrimed();
+        log.info("所有连接池均已借到连接，readiness检查通过");
+    }
+
+    private void runTask(String name, Callable<?> task) {
+        long start = System.nanoTime();
+        String failure = null;
+        try {
+            task.call();
+        } catch (Exception e) {
+            failure = e.toString();
+            log.warn("启动预热任务 {} 失败: {}", name, failure);
+        }
+        timeline.recordWarmupTask(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failure);
+    }
+
+    /**
+     * 同时持有 minimum-idle 个连接，迫使连接池把空闲连接一次建满；借到第一个连接即视为该连接池可用
+     */
+    private int prime(String name, HikariDataSource pool) throws SQLException {
+        int count = Math.max(1, pool.getMinimumIdle());
+        List<Connection> connections = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                connections.add(pool.getConnection());
+                unprimed.remove(name);
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+        return count;
+    }
+
+    private int repeat(Runnable statements) {
+        for (int round = 0; round < statementRounds; round++) {
+            statements.run();
+        }
+        return statementRounds;
+    }
+
+    private void readUsers() {
+        userMapper.selectById(1L);
+        userMapper.selectByUsername("user1");
+        userMapper.selectByIds(List.of(1L, 2L));
+        userMapper.selectPageAfterId(0L, 20);
+        userMapper.selectByStatus(1, 20);
+        userMapper.count();
+    }
+
+    private void readUsersOnMaster() {
+        try (HintManager hintManager = HintManager.getInstance()) {
+            hintManager.setWriteRouteOnly();
+            readUsers();
+        }
+    }
+
+    private void readConfig() {
+        configStore.loadAll();
+        configStore.loadByKey("app.name");
+    }
+}
@@ -0,0 +1,155 @@
+package com.demo.readwrite.trace;
+
+import com.demo.readwrite.routing.ReadYourWritesContext;
+import com.demo.readwrite.routing.ReplicaLoadTracker;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 路由追踪 - 记录逻辑操作、实际使用的数据源和耗时
+ *
+ * 1. 按操作采样，未采样或关闭时只有一次volatile读和一次随机数，不拼接字符串
+ * 2. 输出到 routing-trace 日志，由logback-spring.xml中的AsyncAppender异步写出，请求线程不竞争控制台锁
+ * 3. 开关和采样率可在运行时通过 /diagnostics/trace 调整
+ */
+@Component
+public class RoutingTracer {
+
+    private static final Logger log = LoggerFactory.getLogger("routing-trace");
+
+    public static final String MASTER = "master";
+
+    public static final String SLAVE = "slave";
+
+    /** 无法确定实际数据源，如读操作没有经过读负载均衡、也没有被强制到主库 */
+    public static final String UNKNOWN = "unknown";
+
+    public static final String CONFIG = "config";
+
+    public static final String CONFIG_SNAPSHOT = "config-snapshot";
+
+    public static final String AGGREGATES = "aggregates";
+
+    public static final String USER_CACHE = "user-cache";
+
+    public static final String WRITE_BEHIND = "write-behind";
+
+    public static final String USERNAME_INDEX = "username-index";
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${demo.trace.enabled:true}")
+    private volatile boolean enabled;
+
+    @Value("${demo.trace.sample-rate:0.01}")
+    private volatile double defaultSampleRate;
+
+    /** 按操作覆盖的采样率 */
+    private final Map<String, Double> operationRates = new ConcurrentHashMap<>();
+
+    private final LongAdder recorded = new LongAdder();
+
+    private final LongAdder sampledOut = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        Binder.get(environment)
+                .bind("demo.trace.operations", Bindable.mapOf(String.class, Double.class))
+                .ifBound(operationRates::putAll);
+    }
+
+    /**
+     * 读操作 - 固定读主库、HintManager强制主库或事务内读时为master；
+     * 否则为负载均衡实际选中的数据源(没有可用读库时为回退的写库)，两者都没有时为unknown
+     * 需在查询所在的线程、HintManager关闭之前调用
+     */
+    public void read(String operation, long startNanos) {
+        if (!shouldRecord(operation)) {
+            return;
+        }
+        String dataSource;
+        if (ReadYourWritesContext.isMasterRead()) {
+            dataSource = MASTER;
+        } else {
+            String chosen = ReplicaLoadTracker.getInstance().lastChosenSince(startNanos);
+            dataSource = chosen != null ? chosen : UNKNOWN;
+        }
+        emit(operation, dataSource, startNanos);
+    }
+
+    /**
+     * 写操作 - 总是路由到主库
+     */
+    public void write(String operation, long startNanos) {
+        if (shouldRecord(operation)) {
+            emit(operation, MASTER, startNanos);
+        }
+    }
+
+    /**
+     * 指定数据源的操作，如配置库或配置快照
+     */
+    public void record(String operation, String dataSource, long startNanos) {
+        if (shouldRecord(operation)) {
+            emit(operation, dataSource, startNanos);
+        }
+    }
+
+    private boolean shouldRecord(String operation) {
+        if (!enabled) {
+            return false;
+        }
+        double rate = operationRates.getOrDefault(operation, defaultSampleRate);
+        if (rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate)) {
+            return true;
+        }
+        sampledOut.increment();
+        return false;
+    }
+
+    private void emit(String operation, String dataSource, long startNanos) {
+        recorded.increment();
+        log.info("op={} ds={} elapsed_us={}", operation, dataSource, (System.nanoTime() - startNanos) / 1000);
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 调整采样率，operation为空时调整默认采样率
+     */
+    public void setSampleRate(String operation, double rate) {
+        double bounded = Math.max(0, Math.min(1, rate));
+        if (operation == null || operation.isEmpty()) {
+            defaultSampleRate = bounded;
+        } else {
+            operationRates.put(operation, bounded);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("default_sample_rate", defaultSampleRate);
+        result.put("operation_sample_rates", new TreeMap<>(operationRates));
+        result.put("recorded", recorded.sum());
+        result.put("sampled_out", sampledOut.sum());
+        return result;
+    }
+}
@@ -0,0 +1,314 @@
+package com.demo.readwrite.trace;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.reflect.Array;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * 慢SQL捕获 - 执行耗时超过阈值的Mapper语句写入固定大小的环形缓冲区，并按指纹汇总
+ *
+ * 1. 未超过阈值的语句只有一次比较，不分配对象、不打日志，可以在生产环境常开，代替 sql-show
+ * 2. 环形缓冲区无锁：AtomicLong取序号，按序号写入对应槽位，写满后覆盖最旧的记录
+ * 3. 每条记录包含语句ID、参数形状(只有参数名、类型和集合长度，不含参数值)、实际数据源、耗时、行数和调用接口
+ * 4. 指纹 = 语句ID + 参数形状，按累计耗时取Top N；指纹数量有上限，超出后新的指纹只计入 dropped_fingerprints
+ *
+ * 由QueryMetricsInterceptor在语句执行后调用，阈值和开关可在运行时通过 /diagnostics/slow-queries 调整。
+ */
+@Component
+public class SlowQueryLog {
+
+    /** 指纹数量上限，防止参数形状过多时无限增长 */
+    private static final int MAX_FINGERPRINTS = 1000;
+
+    /** MyBatis为每个参数额外放入的 param1、param2... */
+    private static final Pattern GENERIC_PARAM = Pattern.compile("param\\d+");
+
+    @Value("${demo.slow-query.enabled:true}")
+    private volatile boolean enabled;
+
+    @Value("${demo.slow-query.threshold-ms:100}")
+    private volatile long thresholdMs;
+
+    @Value("${demo.slow-query.capacity:1024}")
+    private int capacity;
+
+    @Value("${demo.slow-query.top-n:20}")
+    private int topN;
+
+    private volatile long thresholdNanos;
+
+    private AtomicReferenceArray<SlowQuery> slots;
+
+    private int mask;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    private final LongAdder droppedFingerprints = new LongAdder();
+
+    /**
+     * 一条慢查询记录
+     *
+     * @param parameterShape 参数名、类型和集合长度，如 {ids=ArrayList[8]}
+     * @param rows           查询返回行数或更新影响行数，游标查询为-1
+     * @param endpoint       调用接口，如 GET /api/users/{id}；非请求线程时为线程名
+     */
+    public record SlowQuery(long sequence, long timestamp, String statement, String parameterShape,
+                            String dataSource, long durationMicros, long rows, String endpoint, boolean success) {
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("time", Instant.ofEpochMilli(timestamp).toString());
+            result.put("statement", statement);
+            result.put("parameter_shape", parameterShape);
+            result.put("datasource", dataSource);
+            result.put("duration_ms", durationMicros / 1000.0);
+            result.put("rows", rows);
+            result.put("endpoint", endpoint);
+            result.put("success", success);
+            return result;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        // 容量取不小于配置值的2的幂，序号与mask相与即为槽位
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+        setThresholdMs(thresholdMs);
+    }
+
+    /**
+     * 是否需要记录 - 热路径上每条语句调用一次
+     */
+    public boolean isSlow(long elapsedNanos) {
+        return enabled && elapsedNanos >= thresholdNanos;
+    }
+
+    /**
+     * 记录一条慢查询，调用方已用isSlow判断过
+     */
+    public void record(MappedStatement statement, Object parameter, String dataSource,
+                       long elapsedNanos, Object result, boolean success) {
+        String statementId = shortId(statement.getId());
+        String shape = shape(parameter);
+        long seq = sequence.getAndIncrement();
+        SlowQuery entry = new SlowQuery(seq, System.currentTimeMillis(), statementId, shape, dataSource,
+                TimeUnit.NANOSECONDS.toMicros(elapsedNanos), rows(result), endpoint(), success);
+        slots.set((int) (seq & mask), entry);
+
+        String key = statementId + ' ' + shape;
+        Fingerprint fingerprint = fingerprints.get(key);
+        if (fingerprint == null) {
+            if (fingerprints.size() >= MAX_FINGERPRINTS) {
+                droppedFingerprints.increment();
+                return;
+            }
+            fingerprint = fingerprints.computeIfAbsent(key, k -> new Fingerprint(statementId, shape));
+        }
+        fingerprint.add(dataSource, elapsedNanos);
+    }
+
+    /**
+     * 最近的慢查询，新的在前
+     */
+    public List<SlowQuery> recent(int limit) {
+        List<SlowQuery> entries = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            SlowQuery entry = slots.get(i);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparingLong(SlowQuery::sequence).reversed());
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    /**
+     * 按累计耗时排序的指纹
+     */
+    public List<Map<String, Object>> top(int limit) {
+        return fingerprints.values().stream()
+                .sorted(Comparator.comparingLong(Fingerprint::totalNanos).reversed())
+                .limit(limit)
+                .map(Fingerprint::toMap)
+                .toList();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setThresholdMs(long thresholdMs) {
+        this.thresholdMs = Math.max(0, thresholdMs);
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(this.thresholdMs);
+    }
+
+    /**
+     * 清空缓冲区和指纹汇总，序号继续递增
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+        fingerprints.clear();
+        droppedFingerprints.reset();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("threshold_ms", thresholdMs);
+        result.put("capacity", slots.length());
+        result.put("recorded", sequence.get());
+        result.put("fingerprints", fingerprints.size());
+        result.put("dropped_fingerprints", droppedFingerprints.sum());
+        return result;
+    }
+
+    public int getTopN() {
+        return topN;
+    }
+
+    /** com.demo.readwrite.mapper.UserMapper.selectById -> UserMapper.selectById */
+    private static String shortId(String id) {
+        int method = id.lastIndexOf('.');
+        int type = method > 0 ? id.lastIndexOf('.', method - 1) : -1;
+        return id.substring(type + 1);
+    }
+
+    /**
+     * 参数形状 - 只保留名称、类型和集合长度；MyBatis的ParamMap中同一参数还会以param1、param2出现，跳过
+     */
+    private static String shape(Object parameter) {
+        if (parameter == null) {
+            return "none";
+        }
+        if (parameter instanceof Map<?, ?> map) {
+            Map<String, String> shapes = new TreeMap<>();
+            map.forEach((name, value) -> {
+                if (!GENERIC_PARAM.matcher(String.valueOf(name)).matches()) {
+                    shapes.put(String.valueOf(name), valueShape(value));
+                }
+            });
+            return shapes.toString();
+        }
+        return valueShape(parameter);
+    }
+
+    private static String valueShape(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Collection<?> collection) {
+            return value.getClass().getSimpleName() + "[" + collection.size() + "]";
+        }
+        if (value.getClass().isArray()) {
+            return value.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(value) + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Number number) {
+            return number.longValue();
+        }
+        return result instanceof Cursor<?> ? -1 : 0;
+    }
+
+    /**
+     * 调用接口 - 请求线程上取HTTP方法和匹配到的路径模板，其他线程(定时刷新、预热)取线程名
+     */
+    private static String endpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servlet) {
+            HttpServletRequest request = servlet.getRequest();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        }
+        return Thread.currentThread().getName();
+    }
+
+    /**
+     * 一个指纹的汇总 - 次数、累计和最大耗时、各数据源次数
+     */
+    private static final class Fingerprint {
+
+        private final String statement;
+
+        private final String parameterShape;
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder total = new LongAdder();
+
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private final Map<String, LongAdder> byDataSource = new ConcurrentHashMap<>();
+
+        Fingerprint(String statement, String parameterShape) {
+            this.statement = statement;
+            this.parameterShape = parameterShape;
+        }
+
+        void add(String dataSource, long elapsedNanos) {
+            count.increment();
+            total.add(elapsedNanos);
+            max.accumulate(elapsedNanos);
+            byDataSource.computeIfAbsent(dataSource, ds -> new LongAdder()).increment();
+        }
+
+        long totalNanos() {
+            return total.sum();
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.sum();
+            long totalNanos = total.sum();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("statement", statement);
+            result.put("parameter_shape", parameterShape);
+            result.put("count", n);
+            result.put("total_ms", TimeUnit.NANOSECONDS.toMillis(totalNanos));
+            result.put("avg_ms", n > 0 ? totalNanos / n / 1_000_000.0 : 0);
+            result.put("max_ms", TimeUnit.NANOSECONDS.toMillis(max.get()));
+            Map<String, Long> dataSources = new TreeMap<>();
+            byDataSource.forEach((ds, c) -> dataSources.put(ds, c.sum()));
+            result.put("datasources", dataSources);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.demo.readwrite.config;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class CompletedFutureReturnValueHandlerTest {
+
+    private final HandlerMethodReturnValueHandler delegate = mock(HandlerMethodReturnValueHandler.class);
+
+    private final CompletedFutureReturnValueHandler handler = new CompletedFutureReturnValueHandler(delegate);
+
+    @Test
+    void completedFutureIsWrittenAsItsResult() throws Exception {
+        MethodParameter returnType = returnType("entity");
+        ResponseEntity<String> entity = ResponseEntity.ok("body");
+
+        handler.handleReturnValue(CompletableFuture.completedFuture(entity), returnType, null, null);
+
+        ArgumentCaptor<MethodParameter> parameter = ArgumentCaptor.forClass(MethodParameter.class);
+        verify(delegate).handleReturnValue(same(entity), parameter.capture(), isNull(), isNull());
+        assertThat(parameter.getValue().getParameterType()).isEqualTo(ResponseEntity.class);
+        assertThat(HttpEntity.class.isAssignableFrom(parameter.getValue().clone().getParameterType())).isTrue();
+        assertThat(parameter.getValue().getGenericParameterType().getTypeName())
+                .isEqualTo("org.springframework.http.ResponseEntity<java.lang.String>");
+        assertThat(parameter.getValue().getMethod()).isEqualTo(returnType.getMethod());
+    }
+
+    @Test
+    void pendingOrFailedFutureKeepsAsyncHandling() throws Exception {
+        MethodParameter returnType = returnType("plain");
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> failed = CompletableFuture.failedFuture(new IllegalStateException());
+
+        handler.handleReturnValue(pending, returnType, null, null);
+        handler.handleReturnValue(failed, returnType, null, null);
+
+        verify(delegate).handleReturnValue(same(pending), eq(returnType), any(), any());
+        verify(delegate).handleReturnValue(same(failed), eq(returnType), any(), any());
+    }
+
+    @Test
+    void supportsOnlyCompletableFutures() throws Exception {
+        assertThat(handler.supportsReturnType(returnType("plain"))).isTrue();
+        assertThat(handler.supportsReturnType(returnType("sync"))).isFalse();
+    }
+
+    private static MethodParameter returnType(String method) throws NoSuchMethodException {
+        return new MethodParameter(Endpoints.class.getDeclaredMethod(method), -1);
+    }
+
+    static class Endpoints {
+
+        CompletableFuture<ResponseEntity<String>> entity() {
+            return null;
+        }
+
+        CompletableFuture<String> plain() {
+            return null;
+        }
+
+        String sync() {
+            return null;
+        }
+    }
+}
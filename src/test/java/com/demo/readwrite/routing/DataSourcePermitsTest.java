@@ -0,0 +1,87 @@
+package com.demo.readwrite.routing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DataSourcePermitsTest {
+
+    private final DataSourcePermits permits = DataSourcePermits.getInstance();
+
+    @BeforeEach
+    void setUp() {
+        permits.configure(Map.of("master", 2, "slave", 1), 50);
+    }
+
+    @AfterEach
+    void tearDown() {
+        permits.configure(Map.of(), 30000);
+    }
+
+    @Test
+    void acquireWithoutScopeTakesNothing() {
+        permits.acquire("slave");
+        permits.acquire("slave");
+
+        assertThat(available("slave")).isEqualTo(1);
+        assertThat(stat("slave", "unscoped")).isEqualTo(2L);
+    }
+
+    @Test
+    void scopeHoldsOnePermitPerDataSourceUntilClosed() {
+        DataSourcePermits.Scope scope = permits.newScope();
+        DataSourcePermits.Scope previous = permits.enter(scope);
+        try {
+            permits.acquire("master");
+            permits.acquire("master");
+            permits.acquire("slave");
+        } finally {
+            permits.restore(previous);
+        }
+
+        assertThat(available("master")).isEqualTo(1);
+        assertThat(available("slave")).isZero();
+
+        // 范围离开线程后仍持有许可(如事务、游标)，关闭时才释放
+        permits.acquire("slave");
+        assertThat(available("slave")).isZero();
+
+        scope.close();
+        scope.close();
+        assertThat(available("master")).isEqualTo(2);
+        assertThat(available("slave")).isEqualTo(1);
+    }
+
+    @Test
+    void exhaustedDataSourceTimesOut() {
+        DataSourcePermits.Scope holder = permits.newScope();
+        DataSourcePermits.Scope previous = permits.enter(holder);
+        try {
+            permits.acquire("slave");
+            DataSourcePermits.Scope second = permits.newScope();
+            permits.enter(second);
+            assertThatThrownBy(() -> permits.acquire("slave"))
+                    .isInstanceOf(DataSourceBusyException.class);
+            second.close();
+        } finally {
+            permits.restore(previous);
+            holder.close();
+        }
+        assertThat(available("slave")).isEqualTo(1);
+        assertThat(stat("slave", "timeouts")).isEqualTo(1L);
+    }
+
+    private int available(String name) {
+        return (Integer) stat(name, "available");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object stat(String name, String key) {
+        return ((Map<String, Object>) permits.snapshot().get(name)).get(key);
+    }
+}
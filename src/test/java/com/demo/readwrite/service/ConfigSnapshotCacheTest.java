@@ -0,0 +1,100 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.SystemConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConfigSnapshotCacheTest {
+
+    private static final LocalDateTime T = LocalDateTime.of(2024, 1, 1, 12, 0, 0);
+
+    private final List<SystemConfig> rows = new ArrayList<>();
+
+    private ConfigSnapshotCache cache;
+
+    @BeforeEach
+    void setUp() {
+        ConfigStore store = mock(ConfigStore.class);
+        when(store.loadAll()).thenAnswer(invocation -> copies());
+        // 与 updated_at >= since 相同：水位线上的行每次都返回
+        when(store.loadUpdatedSince(any())).thenAnswer(invocation -> {
+            LocalDateTime since = invocation.getArgument(0);
+            return copies().stream().filter(row -> !row.getUpdatedAt().isBefore(since)).toList();
+        });
+
+        cache = new ConfigSnapshotCache();
+        ReflectionTestUtils.setField(cache, "store", store);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "fullRefreshEvery", 1000);
+        row(1, "app.name", "demo", T.minusHours(1));
+        row(2, "app.mode", "rw", T);
+        cache.init();
+    }
+
+    @Test
+    void unchangedRowsAtWatermarkLeaveSnapshotUntouched() {
+        long version = version();
+
+        cache.refresh();
+        cache.refresh();
+
+        assertThat(version()).isEqualTo(version);
+        assertThat(cache.stats()).containsEntry("delta_rows", 0L).containsEntry("refresh_count", 3L);
+    }
+
+    @Test
+    void sameSecondUpdateIsStillPickedUp() {
+        long version = version();
+        rows.get(1).setConfigValue("ro");
+
+        cache.refresh();
+
+        assertThat(cache.getByKey("app.mode").getConfigValue()).isEqualTo("ro");
+        assertThat(version()).isEqualTo(version + 1);
+        assertThat(cache.stats()).containsEntry("delta_rows", 1L);
+    }
+
+    @Test
+    void newerRowIsMerged() {
+        row(3, "app.region", "cn", T.plusSeconds(5));
+
+        cache.refresh();
+
+        assertThat(cache.getByKey("app.region").getConfigValue()).isEqualTo("cn");
+        assertThat(cache.stats()).containsEntry("delta_rows", 1L);
+    }
+
+    private long version() {
+        return (Long) cache.stats().get("version");
+    }
+
+    private void row(long id, String key, String value, LocalDateTime updatedAt) {
+        SystemConfig config = new SystemConfig(key, value, null);
+        config.setId(id);
+        config.setCreatedAt(T.minusDays(1));
+        config.setUpdatedAt(updatedAt);
+        rows.add(config);
+    }
+
+    private List<SystemConfig> copies() {
+        List<SystemConfig> result = new ArrayList<>();
+        for (SystemConfig row : rows) {
+            SystemConfig copy = new SystemConfig(row.getConfigKey(), row.getConfigValue(), row.getDescription());
+            copy.setId(row.getId());
+            copy.setCreatedAt(row.getCreatedAt());
+            copy.setUpdatedAt(row.getUpdatedAt());
+            result.add(copy);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class UserImportServiceTest {
+
+    private final List<User> inserted = new ArrayList<>();
+
+    private final Map<Long, String> errors = new TreeMap<>();
+
+    private final Map<Long, User> created = new TreeMap<>();
+
+    private UserImportService service;
+
+    @BeforeEach
+    void setUp() {
+        UserService userService = mock(UserService.class);
+        doAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            inserted.addAll(users);
+            return null;
+        }).when(userService).createUsers(anyList());
+        service = new UserImportService();
+        ReflectionTestUtils.setField(service, "userService", userService);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void importsExportedCsvByHeaderNames() throws IOException {
+        String csv = """
+                id,username,email,age,status,created_at,updated_at
+                1,plain,plain@example.com,30,1,2024-01-01T00:00,2024-01-01T00:00
+                2,"comma, user","quoted""mail@example.com",41,1,,
+                3,"multi
+                line",multi@example.com,52,1,,
+                """;
+
+        UserImportService.ImportSummary summary = importCsv(csv);
+
+        assertThat(summary.created()).isEqualTo(3);
+        assertThat(summary.failed()).isZero();
+        assertThat(summary.lines()).isEqualTo(5);
+        assertThat(created.keySet()).containsExactly(2L, 3L, 4L);
+        assertThat(created.get(3L).getUsername()).isEqualTo("comma, user");
+        assertThat(created.get(3L).getEmail()).isEqualTo("quoted\"mail@example.com");
+        assertThat(created.get(4L).getUsername()).isEqualTo("multi\nline");
+        assertThat(created.get(4L).getAge()).isEqualTo(52);
+    }
+
+    @Test
+    void readsHeaderlessCsvPositionally() throws IOException {
+        UserImportService.ImportSummary summary = importCsv("alice,alice@example.com,20\nbob,bob@example.com,21\n");
+
+        assertThat(summary.created()).isEqualTo(2);
+        assertThat(inserted).extracting(User::getUsername).containsExactly("alice", "bob");
+    }
+
+    @Test
+    void rejectsMissingAndInvalidAges() throws IOException {
+        String csv = """
+                username,email,age
+                ok,ok@example.com,33
+                missing,missing@example.com,
+                short,short@example.com
+                word,word@example.com,abc
+                negative,negative@example.com,-1
+                """;
+
+        UserImportService.ImportSummary summary = importCsv(csv);
+
+        assertThat(summary.created()).isEqualTo(1);
+        assertThat(summary.failed()).isEqualTo(4);
+        assertThat(errors).containsOnlyKeys(3L, 4L, 5L, 6L);
+        assertThat(errors.get(3L)).contains("age");
+        assertThat(errors.get(5L)).contains("age");
+        assertThat(inserted).extracting(User::getAge).containsExactly(33);
+    }
+
+    @Test
+    void rejectsNdjsonWithoutAge() throws IOException {
+        String ndjson = """
+                {"username":"a","email":"a@example.com","age":20}
+                {"username":"b","email":"b@example.com"}
+                {"username":"c","email":"c@example.com","age":"x"}
+                """;
+
+        UserImportService.ImportSummary summary = service.importUsers(new BufferedReader(new StringReader(ndjson)),
+                UserImportService.Format.NDJSON, 100, sink());
+
+        assertThat(summary.created()).isEqualTo(1);
+        assertThat(errors).containsOnlyKeys(2L, 3L);
+    }
+
+    @Test
+    void stopsAtUnterminatedQuote() throws IOException {
+        UserImportService.ImportSummary summary = importCsv("a,a@example.com,1\n\"b,b@example.com,2\nc,c@example.com,3\n");
+
+        assertThat(summary.created()).isEqualTo(1);
+        assertThat(errors).containsOnlyKeys(2L);
+    }
+
+    private UserImportService.ImportSummary importCsv(String csv) throws IOException {
+        return service.importUsers(new BufferedReader(new StringReader(csv)), UserImportService.Format.CSV, 100, sink());
+    }
+
+    private UserImportService.ResultSink sink() {
+        return new UserImportService.ResultSink() {
+            @Override
+            public void created(long line, User user) {
+                created.put(line, user);
+            }
+
+            @Override
+            public void failed(long line, String error) {
+                errors.put(line, error);
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.User;
+import com.demo.readwrite.mapper.UserMapper;
+import com.demo.readwrite.routing.ReadYourWritesContext;
+import com.demo.readwrite.trace.RoutingTracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserServiceWriteBehindTest {
+
+    private final UserMapper userMapper = mock(UserMapper.class);
+
+    private final UserWriteBehind writeBehind = new UserWriteBehind();
+
+    private UserService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // 不调用init：不启动写入线程，待写项只由测试控制
+        ReflectionTestUtils.setField(writeBehind, "enabled", true);
+        ReflectionTestUtils.setField(writeBehind, "maxPending", 100);
+        ReflectionTestUtils.setField(writeBehind, "batchSize", 10);
+
+        UserCache userCache = mock(UserCache.class);
+        when(userCache.getById(anyLong(), any())).thenAnswer(invocation ->
+                ((Supplier<User>) invocation.getArgument(1)).get());
+        when(userCache.getAllById(anyCollection(), any())).thenAnswer(invocation ->
+                ((Function<Set<Long>, Map<Long, User>>) invocation.getArgument(1)).apply(Set.of()));
+        UserBatchLoader batchLoader = mock(UserBatchLoader.class);
+        when(batchLoader.loadAll(any())).thenReturn(Map.of());
+
+        service = new UserService();
+        ReflectionTestUtils.setField(service, "userMapper", userMapper);
+        ReflectionTestUtils.setField(service, "tracer", mock(RoutingTracer.class));
+        ReflectionTestUtils.setField(service, "aggregates", mock(UserAggregates.class));
+        ReflectionTestUtils.setField(service, "userCache", userCache);
+        ReflectionTestUtils.setField(service, "batchLoader", batchLoader);
+        ReflectionTestUtils.setField(service, "writeBehind", writeBehind);
+        ReflectionTestUtils.setField(service, "usernameIndex", mock(UsernameIndex.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        // 写操作把本线程固定到主库，clear()是包内方法
+        ReflectionTestUtils.invokeMethod(ReadYourWritesContext.class, "clear");
+    }
+
+    @Test
+    void deleteDiscardsPendingUpdate() {
+        User stored = new User("alice", "alice@example.com", 30);
+        stored.setId(1L);
+        when(userMapper.selectById(1L)).thenReturn(stored);
+        when(userMapper.deleteById(1L)).thenReturn(1);
+
+        service.updateUser(1L, "alice2", "alice2@example.com", 31);
+        assertThat(service.findUserById(1L).getUsername()).isEqualTo("alice2");
+
+        assertThat(service.deleteUser(1L)).isEqualTo(1);
+        when(userMapper.selectById(1L)).thenReturn(null);
+
+        assertThat(writeBehind.pending(1L)).isNull();
+        assertThat(service.findUserById(1L)).isNull();
+        assertThat(service.findUsersByIds(List.of(1L))).isEmpty();
+        assertThat(writeBehind.stats()).containsEntry("pending", 0).containsEntry("discarded", 1L);
+        // 没有待写项，写入不会再UPDATE已删除的行
+        assertThat(writeBehind.flush()).isZero();
+    }
+}
@@ -0,0 +1,162 @@
+package com.demo.readwrite.service;
+
+import com.demo.readwrite.entity.User;
+import com.demo.readwrite.mapper.UserMapper;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UsernameIndexTest {
+
+    private final List<User> rows = new ArrayList<>();
+
+    private UsernameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        SqlSessionFactory sqlSessionFactory = mock(SqlSessionFactory.class);
+        SqlSession session = mock(SqlSession.class);
+        UserMapper mapper = mock(UserMapper.class);
+        @SuppressWarnings("unchecked")
+        Cursor<User> cursor = mock(Cursor.class);
+        when(sqlSessionFactory.openSession()).thenReturn(session);
+        when(session.getMapper(UserMapper.class)).thenReturn(mapper);
+        when(mapper.selectUsernamesCursor()).thenReturn(cursor);
+        when(cursor.iterator()).thenAnswer(invocation -> new ArrayList<>(rows).iterator());
+
+        index = new UsernameIndex();
+        ReflectionTestUtils.setField(index, "sqlSessionFactory", sqlSessionFactory);
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "rebuildIntervalMs", 600000L);
+        ReflectionTestUtils.setField(index, "compactThreshold", 10000);
+        ReflectionTestUtils.setField(index, "replayWindowMs", 10000L);
+    }
+
+    @Test
+    void foldsCaseAccentsAndCompatibilityForms() {
+        assertThat(UsernameIndex.fold("Alice")).isEqualTo("alice");
+        assertThat(UsernameIndex.fold("Émile")).isEqualTo("emile");
+        assertThat(UsernameIndex.fold("Straße")).isEqualTo("strasse");
+        assertThat(UsernameIndex.fold("ＡＢＣ")).isEqualTo("abc");
+        assertThat(UsernameIndex.fold("Zoë")).isEqualTo(UsernameIndex.fold("ZOE"));
+    }
+
+    @Test
+    void notReadyUntilBuilt() {
+        assertThat(index.isReady()).isFalse();
+
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+    }
+
+    @Test
+    void matchesPrefixIgnoringCaseAndAccentsAndReturnsOriginalNames() {
+        row(1, "emma");
+        row(2, "Émile");
+        row(3, "EMILY");
+        row(4, "bob");
+        row(5, "Straße");
+        index.rebuild();
+
+        assertThat(index.lookup("EM", 10)).containsExactly(
+                new UsernameIndex.Match(2, "Émile"),
+                new UsernameIndex.Match(3, "EMILY"),
+                new UsernameIndex.Match(1, "emma"));
+        assertThat(index.lookup("émi", 1)).containsExactly(new UsernameIndex.Match(2, "Émile"));
+        assertThat(index.lookup("strass", 10)).containsExactly(new UsernameIndex.Match(5, "Straße"));
+        assertThat(index.lookup("x", 10)).isEmpty();
+    }
+
+    @Test
+    void mergesLocalChangesBeforeAndAfterCompaction() {
+        row(1, "anna");
+        row(2, "andy");
+        row(3, "amos");
+        index.rebuild();
+
+        index.put(4L, "Anders");
+        index.put(2L, "zed");
+        index.remove(3L);
+
+        List<UsernameIndex.Match> expected = List.of(
+                new UsernameIndex.Match(4, "Anders"),
+                new UsernameIndex.Match(1, "anna"));
+        assertThat(index.lookup("a", 10)).isEqualTo(expected);
+        assertThat(index.lookup("z", 10)).containsExactly(new UsernameIndex.Match(2, "zed"));
+
+        ReflectionTestUtils.setField(index, "compactThreshold", 1);
+        index.maintain();
+
+        assertThat(stat("compactions")).isEqualTo(1L);
+        assertThat(stat("delta_entries")).isEqualTo(0);
+        assertThat(index.lookup("a", 10)).isEqualTo(expected);
+        assertThat(index.lookup("z", 10)).containsExactly(new UsernameIndex.Match(2, "zed"));
+    }
+
+    @Test
+    void changesDuringCompactionAreKept() throws Exception {
+        for (int i = 0; i < 200_000; i++) {
+            row(i, "user" + i);
+        }
+        index.rebuild();
+        ReflectionTestUtils.setField(index, "compactThreshold", 1);
+
+        int writes = 2000;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < writes; i++) {
+                index.put(1_000_000L + i, "new" + i);
+                index.remove((long) i);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            index.maintain();
+        }
+        writer.join();
+        index.maintain();
+
+        assertThat((Long) stat("compactions")).isGreaterThan(1L);
+        assertThat(index.lookup("new", writes + 1)).hasSize(writes);
+        assertThat(index.lookup("user0", 10)).isEmpty();
+        assertThat(index.lookup("user1999", 1)).containsExactly(new UsernameIndex.Match(19990, "user19990"));
+        assertThat(stat("base_entries")).isEqualTo(200_000);
+    }
+
+    @Test
+    void rebuildReplaysRecentLocalChanges() {
+        row(1, "carol");
+        index.rebuild();
+        index.put(2L, "Cathy");
+
+        // 从库还没复制到这次写入
+        index.rebuild();
+
+        assertThat(index.lookup("ca", 10)).containsExactly(
+                new UsernameIndex.Match(1, "carol"),
+                new UsernameIndex.Match(2, "Cathy"));
+    }
+
+    private void row(long id, String username) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        rows.add(user);
+    }
+
+    private Object stat(String key) {
+        Map<String, Object> stats = index.stats();
+        return stats.get(key);
+    }
+}